@@ -0,0 +1,51 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Levels and moves used by the benchmarks, which are run from the project directory.
+ */
+final class BenchmarkLevels {
+
+    private BenchmarkLevels() {
+    }
+
+    static @NotNull File levelFile(@NotNull String identifier) {
+        return new File("levels/VoidStranger/simplified/" + identifier + "/data.json");
+    }
+
+    static @NotNull Preparer.PreparationResult prepare(@NotNull String identifier) throws IOException {
+        return Preparer.prepareLevel(levelFile(identifier));
+    }
+
+    /**
+     * @return the first moves reached by a breadth-first search, so the benchmarks run on moves met when solving
+     */
+    static @NotNull List<Move> sampleMoves(@NotNull Preparer.PreparationResult preparationResult, int count) {
+        Level level = preparationResult.level();
+        Board board = new Board(level);
+        VisitedStates knownMoves = new VisitedStates(level);
+        List<Move> moves = new ArrayList<>(count);
+        Deque<Move> currentMoves = new ArrayDeque<>();
+        currentMoves.add(preparationResult.move());
+        knownMoves.add(preparationResult.move());
+        while ((!currentMoves.isEmpty()) && (moves.size() < count)) {
+            Move move = currentMoves.removeFirst();
+            moves.add(move);
+            Player.nextMoves(level, board, move, newMove -> {
+                if (knownMoves.add(newMove) && (Player.moveStatus(newMove, level) == Player.MoveStatus.LOOSE)) {
+                    currentMoves.addLast(board.keep(newMove));
+                }
+                return false;
+            });
+        }
+        return moves;
+    }
+}
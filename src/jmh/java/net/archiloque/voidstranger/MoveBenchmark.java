@@ -0,0 +1,75 @@
+package net.archiloque.voidstranger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing and comparison of the moves, as done by the visited states.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+    private static final int SAMPLE_SIZE = 4096;
+
+    @Param({"B014", "WHAT"})
+    public String levelIdentifier;
+
+    private Level level;
+    private Move[] moves;
+    private Move[] copies;
+    private int index = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        Preparer.PreparationResult preparationResult = BenchmarkLevels.prepare(levelIdentifier);
+        level = preparationResult.level();
+        moves = BenchmarkLevels.sampleMoves(preparationResult, SAMPLE_SIZE).toArray(new Move[0]);
+        copies = new Move[moves.length];
+        for (int moveIndex = 0; moveIndex < moves.length; moveIndex++) {
+            copies[moveIndex] = moves[moveIndex].copy();
+        }
+    }
+
+    private int nextIndex() {
+        int currentIndex = index;
+        index = (currentIndex + 1 == moves.length) ? 0 : currentIndex + 1;
+        return currentIndex;
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return moves[nextIndex()].hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        int currentIndex = nextIndex();
+        return moves[currentIndex].equals(copies[currentIndex]);
+    }
+
+    /**
+     * Full computation of the hash, the moves generated by the rules having it updated incrementally.
+     */
+    @Benchmark
+    public long layersHash() {
+        Move move = moves[nextIndex()];
+        return level.zobrist().layersHash(move.groundLayer, move.upLayer, level.positions().length);
+    }
+}
@@ -0,0 +1,116 @@
+package net.archiloque.voidstranger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of the moves, on moves met when solving the level:
+ * one operation is one move, so the throughput is in states per second,
+ * and {@code -prof gc} gives the bytes allocated per state.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayerBenchmark {
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private static final int SAMPLE_SIZE = 4096;
+
+    @Param({"B014", "B029", "B033", "WHAT"})
+    public String levelIdentifier;
+
+    private Level level;
+    private Board board;
+    private InPlaceBoard inPlaceBoard;
+    private Move[] moves;
+    private Move[] simulatedMoves;
+    private Action[] simulatedActions;
+    private int index = 0;
+    private int simulatedIndex = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        Preparer.PreparationResult preparationResult = BenchmarkLevels.prepare(levelIdentifier);
+        level = preparationResult.level();
+        board = new Board(level);
+        List<Move> sampleMoves = BenchmarkLevels.sampleMoves(preparationResult, SAMPLE_SIZE);
+        moves = sampleMoves.toArray(new Move[0]);
+        // The first possible action of each move having one, for the benchmark of a single action
+        List<Move> simulatedMoves = new ArrayList<>();
+        List<Action> simulatedActions = new ArrayList<>();
+        for (Move move : moves) {
+            Player.nextMoves(level, board, move, newMove -> {
+                simulatedMoves.add(move);
+                simulatedActions.add(Objects.requireNonNull(newMove.action));
+                return true;
+            });
+        }
+        this.simulatedMoves = simulatedMoves.toArray(new Move[0]);
+        this.simulatedActions = simulatedActions.toArray(new Action[0]);
+        inPlaceBoard = new InPlaceBoard(level, preparationResult.move());
+    }
+
+    private int nextIndex() {
+        int currentIndex = index;
+        index = (currentIndex + 1 == moves.length) ? 0 : currentIndex + 1;
+        return currentIndex;
+    }
+
+    @Benchmark
+    public boolean nextMoves(Blackhole blackhole) {
+        return Player.nextMoves(level, board, moves[nextIndex()], newMove -> {
+            blackhole.consume(newMove.hash);
+            return false;
+        });
+    }
+
+    @Benchmark
+    public Move simulate() {
+        int currentIndex = simulatedIndex;
+        simulatedIndex = (currentIndex + 1 == simulatedMoves.length) ? 0 : currentIndex + 1;
+        return Player.simulate(level, simulatedMoves[currentIndex], simulatedActions[currentIndex]);
+    }
+
+    @Benchmark
+    public long postMove() {
+        Move move = moves[nextIndex()];
+        board.reset(move);
+        Player.postMove(level, move, move.playerPositionIndex, board, -1);
+        return board.layersHash;
+    }
+
+    /**
+     * Apply and revert the actions from the initial move on the board used by the iterative deepening search.
+     */
+    @Benchmark
+    public long makeUnmake() {
+        long hash = 0;
+        for (Action action : ACTIONS) {
+            if (inPlaceBoard.make(action)) {
+                hash ^= inPlaceBoard.hash();
+                inPlaceBoard.unmake();
+            }
+        }
+        return hash;
+    }
+}
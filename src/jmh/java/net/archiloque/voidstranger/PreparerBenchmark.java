@@ -0,0 +1,59 @@
+package net.archiloque.voidstranger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and preparation of a level file, and loading of its compiled file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PreparerBenchmark {
+
+    @Param({"B001", "B014", "WHAT"})
+    public String levelIdentifier;
+
+    private Path compiledFile;
+
+    @Setup
+    public void setup() throws IOException {
+        compiledFile = Files.createTempFile(levelIdentifier, ".bin");
+        CompiledLevel.write(Preparer.prepareLevel(BenchmarkLevels.levelFile(levelIdentifier)), compiledFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(compiledFile);
+    }
+
+    @Benchmark
+    public Preparer.PreparationResult prepareLevel() throws IOException {
+        File levelFile = BenchmarkLevels.levelFile(levelIdentifier);
+        return Preparer.prepareLevel(levelFile);
+    }
+
+    @Benchmark
+    public Preparer.PreparationResult readCompiledLevel() throws IOException {
+        return CompiledLevel.read(compiledFile);
+    }
+}
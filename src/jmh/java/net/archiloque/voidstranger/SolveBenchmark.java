@@ -0,0 +1,87 @@
+package net.archiloque.voidstranger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full breadth-first solve of representative levels.
+ * The solutions are printed like when solving, but in a temporary directory so the solutions directory is left untouched.
+ * The score is in solves per second, and the {@code states} counter in states per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4G")
+@State(Scope.Thread)
+public class SolveBenchmark {
+
+    private static final Set<Player.MoveStatus> OBJECTIVES = EnumSet.complementOf(EnumSet.of(Player.MoveStatus.LOOSE));
+
+    @Param({"B007", "B033", "B045", "WHAT"})
+    public String levelIdentifier;
+
+    private Preparer.PreparationResult preparationResult;
+
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class States {
+
+        public long states;
+
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void reset() {
+            states = 0;
+        }
+    }
+
+    private Path solutionsDirectory;
+
+    @Setup
+    public void setup() throws IOException {
+        preparationResult = BenchmarkLevels.prepare(levelIdentifier);
+        solutionsDirectory = Files.createTempDirectory("solutions");
+        System.setProperty(Printer.SOLUTIONS_DIRECTORY_PROPERTY, solutionsDirectory.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> solutionFiles = Files.newDirectoryStream(solutionsDirectory)) {
+            for (Path solutionFile : solutionFiles) {
+                Files.delete(solutionFile);
+            }
+        }
+        Files.delete(solutionsDirectory);
+        System.clearProperty(Printer.SOLUTIONS_DIRECTORY_PROPERTY);
+    }
+
+    @Benchmark
+    public SearchResult play(States states) {
+        SearchResult searchResult = Player.play(preparationResult, OBJECTIVES, out, Long.MAX_VALUE, new Metrics(levelIdentifier, 0, null), null, false);
+        states.states += searchResult.states();
+        return searchResult;
+    }
+}
@@ -0,0 +1,91 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Best-first search ordered by the number of actions plus the {@link Heuristic} estimate.
+ * The estimate being consistent, each move is expanded at most once,
+ * and as the objectives are reported when their move leaves the queue their solutions are still shortest ones.
+ */
+public class AStarPlayer {
+
+    /**
+     * @param actions  number of actions from the initial move
+     * @param priority number of actions plus the estimate of the remaining ones
+     */
+    private record Node(@NotNull Move move, @NotNull Player.MoveStatus moveStatus, int actions, int priority) {
+    }
+
+    /**
+     * Lowest priority first, then deepest first to reach the objectives sooner, then by hash to stay deterministic.
+     */
+    private static final Comparator<Node> NODE_COMPARATOR = Comparator
+            .comparingInt(Node::priority)
+            .thenComparing(Comparator.comparingInt(Node::actions).reversed())
+            .thenComparingLong(node -> node.move().hash);
+
+    /**
+     * @param targets   the objectives to search
+     * @param maxStates the search stops after this number of expanded states
+     */
+    static @NotNull SearchResult play(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Set<Player.MoveStatus> targets,
+            @NotNull PrintStream out,
+            long maxStates) {
+        Level level = preparationResult.level();
+        Objectives objectives = new Objectives(preparationResult, targets);
+        Heuristic heuristic = new Heuristic(level, objectives.pending());
+        VisitedStates expandedMoves = new VisitedStates(level);
+        PriorityQueue<Node> queue = new PriorityQueue<>(NODE_COMPARATOR);
+        queue.add(new Node(preparationResult.move(), Player.MoveStatus.LOOSE, 0, heuristic.estimate(preparationResult.move())));
+        PathStore paths = new PathStore();
+        DeadStates deadStates = new DeadStates(level, preparationResult.move());
+        Board board = new Board(level);
+
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            if (!expandedMoves.add(node.move())) {
+                continue;
+            }
+            if (node.moveStatus() != Player.MoveStatus.LOOSE) {
+                if (objectives.reach(node.moveStatus(), () -> paths.actions(node.move()))) {
+                    out.println(expandedMoves);
+                    return new SearchResult(objectives.outcome(), objectives.reached(), expandedMoves.size());
+                }
+                continue;
+            }
+            if (expandedMoves.size() >= maxStates) {
+                out.println(expandedMoves);
+                out.println(" ### Aborted !");
+                return new SearchResult(SearchResult.Outcome.ABORTED, objectives.reached(), expandedMoves.size());
+            }
+            if (node.actions() > 0) {
+                paths.add(node.move());
+            }
+            int actions = node.actions() + 1;
+            Player.nextMoves(level, board, node.move(), newMove -> {
+                if ((!expandedMoves.contains(newMove)) && (!deadStates.isDead(newMove, objectives.pending()))) {
+                    Player.MoveStatus moveStatus = Player.moveStatus(newMove, level);
+                    if (moveStatus != Player.MoveStatus.LOOSE) {
+                        queue.add(new Node(board.keep(newMove), moveStatus, actions, actions));
+                    } else {
+                        int estimate = heuristic.estimate(newMove);
+                        if (estimate != Heuristic.UNREACHABLE) {
+                            queue.add(new Node(board.keep(newMove), moveStatus, actions, actions + estimate));
+                        }
+                    }
+                }
+                return false;
+            });
+        }
+        out.println(expandedMoves);
+        out.println(" ### Fail !");
+        return new SearchResult(SearchResult.Outcome.FAIL, objectives.reached(), expandedMoves.size());
+    }
+}
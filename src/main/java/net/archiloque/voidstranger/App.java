@@ -1,30 +1,62 @@
 package net.archiloque.voidstranger;
 
+import net.archiloque.voidstranger.importer.LdtkImporter;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 public class App {
+
+    static final File LDTK_PROJECT = new File("levels/VoidStranger.ldtk");
+
     public static void main(String[] args) throws IOException {
-        if (args.length == 0) {
-            File[] levelDirectories = new File("levels/VoidStranger/Simplified").listFiles();
-            Arrays.sort(Objects.requireNonNull(levelDirectories));
-            for (File levelDirectory : levelDirectories) {
-                File[] files = levelDirectory.listFiles((dir, name) -> name.endsWith(".json"));
-                processLevel(Objects.requireNonNull(files)[0]);
+        Options options = Options.parse(args);
+        List<String> arguments = options.arguments;
+        if (arguments.isEmpty()) {
+            List<File> levelFiles = new ArrayList<>();
+            if (options.ldtk) {
+                levelFiles.addAll(LdtkImporter.levelFiles(LDTK_PROJECT).values());
+            } else {
+                File[] levelDirectories = new File("levels/VoidStranger/Simplified").listFiles();
+                Arrays.sort(Objects.requireNonNull(levelDirectories));
+                for (File levelDirectory : levelDirectories) {
+                    File[] files = levelDirectory.listFiles((dir, name) -> name.endsWith(".json"));
+                    levelFiles.add(Objects.requireNonNull(files)[0]);
+                }
+            }
+            if ((options.batch > 0) && (!options.compile) && (!options.check)) {
+                Batch.run(levelFiles, options);
+            } else {
+                for (File levelFile : levelFiles) {
+                    processLevel(levelFile, options);
+                }
             }
         } else {
-            File levelFile = new File("levels/VoidStranger/Simplified/" + args[0] + "/data.json");
-            if (args.length == 1) {
-                processLevel(levelFile);
-            } else if (args.length == 2) {
-                Preparer.PreparationResult preparationResult = Preparer.prepareLevel(levelFile);
+            File levelFile;
+            if (options.ldtk) {
+                levelFile = LdtkImporter.levelFiles(LDTK_PROJECT).get(arguments.get(0));
+                if (levelFile == null) {
+                    throw new IllegalArgumentException("Unknown level " + arguments.get(0));
+                }
+            } else {
+                levelFile = new File("levels/VoidStranger/Simplified/" + arguments.get(0) + "/data.json");
+            }
+            if (arguments.size() == 1) {
+                processLevel(levelFile, options);
+            } else if (arguments.size() == 2) {
+                Preparer.PreparationResult preparationResult = CompiledLevel.load(levelFile);
                 Move currentMove = preparationResult.move();
                 Level level = preparationResult.level();
-                for (String actionString : args[1].split(", ")) {
+                for (String actionString : arguments.get(1).split(", ")) {
                     System.out.println("[" + actionString + "]");
                     Action action = Action.valueOf(actionString);
                     currentMove = Player.simulate(level, currentMove, action);
@@ -39,9 +71,72 @@ public class App {
         }
     }
 
-    public static void processLevel(@NotNull File levelFile) throws IOException {
+    public static void processLevel(@NotNull File levelFile, @NotNull Options options) throws IOException {
         System.out.println("Process file " + levelFile);
-        Preparer.PreparationResult preparationResult = Preparer.prepareLevel(levelFile);
-        Player.play(preparationResult);
+        if (options.compile) {
+            System.out.println("Compiled to " + CompiledLevel.compile(levelFile));
+            return;
+        }
+        Preparer.PreparationResult preparationResult = CompiledLevel.load(levelFile);
+        if (options.check) {
+            EngineCheck.run(preparationResult, System.out, (options.maxStates == Long.MAX_VALUE) ? EngineCheck.DEFAULT_MAX_STATES : options.maxStates);
+        } else {
+            solve(levelFile, preparationResult, options, System.out, options.maxStates);
+        }
+    }
+
+    /**
+     * Solve a level, using the {@link SolutionCache} when it is enabled.
+     */
+    static @NotNull SearchResult solve(
+            @NotNull File levelFile,
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Options options,
+            @NotNull PrintStream out,
+            long maxStates) {
+        if (options.cache) {
+            return SolutionCache.solve(levelFile, preparationResult, options, out, maxStates);
+        } else {
+            return solve(preparationResult, options, out, maxStates);
+        }
+    }
+
+    static @NotNull SearchResult solve(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Options options,
+            @NotNull PrintStream out,
+            long maxStates) {
+        if (Objectives.available(preparationResult, options.objectives).isEmpty()) {
+            out.println("Objectives unavailable on this level: " +
+                    options.objectives.stream().map(objective -> objective.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")));
+            return new SearchResult(SearchResult.Outcome.UNAVAILABLE, Map.of(), 0);
+        }
+        switch (options.search) {
+            case ASTAR -> {
+                return AStarPlayer.play(preparationResult, options.objectives, out, maxStates);
+            }
+            case IDASTAR -> {
+                return IdaStarPlayer.play(preparationResult, options.objectives, out, maxStates);
+            }
+            case EXTERNAL -> {
+                return ExternalPlayer.play(preparationResult, options.objectives, out, maxStates);
+            }
+            default -> {
+                if (options.macro && MacroPlayer.applies(preparationResult)) {
+                    return MacroPlayer.play(preparationResult, options.objectives, out, maxStates);
+                } else if (options.threads > 1) {
+                    return ParallelPlayer.play(preparationResult, options.objectives, out, options.threads, maxStates);
+                } else {
+                    return Player.play(
+                            preparationResult,
+                            options.objectives,
+                            out,
+                            maxStates,
+                            Metrics.create(preparationResult.level().identifier(), options),
+                            Checkpoint.create(preparationResult, options, out),
+                            options.resume);
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,156 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Solve several levels at the same time in the same JVM.
+ * The largest levels start first, each level searched in memory gets a share of the heap
+ * and its output is printed in one block when it is over.
+ */
+final class Batch {
+
+    /**
+     * Part of the heap shared between the levels, the rest is kept for the frontiers and the JVM.
+     */
+    private static final double HEAP_RATIO = 0.5;
+
+    private record LevelResult(
+            @NotNull String identifier,
+            int cells,
+            long maxStates,
+            @Nullable SearchResult searchResult,
+            @Nullable Throwable error,
+            long duration,
+            @NotNull String output) {
+    }
+
+    private record LevelToSolve(@NotNull File levelFile, @NotNull Preparer.PreparationResult preparationResult) {
+    }
+
+    private Batch() {
+    }
+
+    static void run(@NotNull List<File> levelFiles, @NotNull Options options) throws IOException {
+        long start = System.nanoTime();
+        List<LevelToSolve> levelsToSolve = new ArrayList<>();
+        for (File levelFile : levelFiles) {
+            levelsToSolve.add(new LevelToSolve(levelFile, CompiledLevel.load(levelFile)));
+        }
+        levelsToSolve.sort(Comparator.comparingInt((LevelToSolve l) -> l.preparationResult().level().positions().length).reversed());
+
+        long memoryBudget = (long) (Runtime.getRuntime().maxMemory() * HEAP_RATIO / options.batch);
+        ExecutorService executor = Executors.newFixedThreadPool(options.batch);
+        CompletionService<LevelResult> completionService = new ExecutorCompletionService<>(executor);
+        for (LevelToSolve levelToSolve : levelsToSolve) {
+            // The external search keeps its states on disk and the iterative deepening search counts the states expanded again
+            long maxStates = ((options.search == Options.Search.EXTERNAL) || (options.search == Options.Search.IDASTAR)) ?
+                    options.maxStates :
+                    Math.min(
+                            options.maxStates,
+                            memoryBudget / DominanceVisitedStates.bytesPerState(levelToSolve.preparationResult().level()));
+            completionService.submit(() -> solve(levelToSolve, options, maxStates));
+        }
+
+        List<LevelResult> levelResults = new ArrayList<>();
+        try {
+            for (int levelIndex = 0; levelIndex < levelsToSolve.size(); levelIndex++) {
+                LevelResult levelResult = completionService.take().get();
+                System.out.print(levelResult.output());
+                System.out.flush();
+                levelResults.add(levelResult);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        printSummary(levelResults, System.nanoTime() - start);
+    }
+
+    private static @NotNull LevelResult solve(
+            @NotNull LevelToSolve levelToSolve,
+            @NotNull Options options,
+            long maxStates) {
+        Preparer.PreparationResult preparationResult = levelToSolve.preparationResult();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(outputStream, true, StandardCharsets.UTF_8);
+        Level level = preparationResult.level();
+        out.println("Process level " + level.identifier());
+        long start = System.nanoTime();
+        SearchResult searchResult = null;
+        Throwable error = null;
+        try {
+            searchResult = App.solve(levelToSolve.levelFile(), preparationResult, options, out, maxStates);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            error = e;
+            out.println(" ### Error " + e);
+        }
+        return new LevelResult(
+                level.identifier(),
+                level.positions().length,
+                maxStates,
+                searchResult,
+                error,
+                System.nanoTime() - start,
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void printSummary(@NotNull List<LevelResult> levelResults, long duration) {
+        levelResults.sort(Comparator.comparing(LevelResult::identifier));
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT,
+                "%-6s %6s %-8s %-22s %12s %12s %10s",
+                "Level", "Cells", "Result", "Objectives", "States", "Max states", "Time (s)"));
+        long totalDuration = 0;
+        for (LevelResult levelResult : levelResults) {
+            SearchResult searchResult = levelResult.searchResult();
+            String result;
+            String objectives;
+            String states;
+            if (searchResult == null) {
+                result = "ERROR";
+                objectives = String.valueOf(levelResult.error());
+                states = "";
+            } else {
+                result = searchResult.outcome().name();
+                objectives = searchResult.reached().keySet().stream().map(Enum::name).collect(Collectors.joining(","));
+                states = Long.toString(searchResult.states());
+            }
+            System.out.println(String.format(Locale.ROOT,
+                    "%-6s %6d %-8s %-22s %12s %12d %10.1f",
+                    levelResult.identifier(),
+                    levelResult.cells(),
+                    result,
+                    objectives,
+                    states,
+                    levelResult.maxStates(),
+                    levelResult.duration() / 1e9));
+            totalDuration += levelResult.duration();
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "%d levels, %.1f s of solving in %.1f s",
+                levelResults.size(),
+                totalDuration / 1e9,
+                duration / 1e9));
+    }
+}
@@ -0,0 +1,159 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write view of the layers of a {@link Move}, used to build the next moves.
+ * A layer is shared with the move until a cell of it changes, and is then copied into the arrays of the board,
+ * so most moves share at least one layer with the move they come from.
+ * The Zobrist hash of the layers is updated each time a cell changes.
+ * The enemies are updated the same way in a buffer of the board.
+ * A board is reused for all the moves generated by its owner,
+ * so the moves it builds share its arrays until they are kept with {@link #keep(Move)}.
+ */
+final class Board {
+
+    private final @NotNull Zobrist zobrist;
+    private final @NotNull LayersPool layersPool = new LayersPool();
+    private final long @NotNull [] boardGroundLayer;
+    private final long @NotNull [] boardUpLayer;
+
+    /**
+     * Sorted indexes of the enemies in its first {@link #enemiesNumber} elements, once they have been modified.
+     */
+    private final int @NotNull [] boardEnemies;
+    private int enemiesNumber;
+
+    /**
+     * The layers of the move the board started from, or the arrays of the board once they have been modified.
+     */
+    private long @NotNull [] groundLayer;
+    private long @NotNull [] upLayer;
+
+    /**
+     * The enemies of the move the board started from, or the buffer of the board once they have been modified.
+     */
+    private int @NotNull [] enemies;
+    long layersHash;
+
+    Board(@NotNull Level level) {
+        this.zobrist = level.zobrist();
+        this.boardGroundLayer = Layers.newGroundLayer(level.positions().length);
+        this.boardUpLayer = Layers.newUpLayer(level.positions().length);
+        this.groundLayer = boardGroundLayer;
+        this.upLayer = boardUpLayer;
+        this.boardEnemies = new int[level.positions().length];
+        this.enemies = new int[0];
+    }
+
+    /**
+     * Start from the layers of a move, which are not modified.
+     */
+    void reset(@NotNull Move move) {
+        groundLayer = move.groundLayer;
+        upLayer = move.upLayer;
+        enemies = move.enemies;
+        layersHash = move.layersHash;
+    }
+
+    char groundEntity(int index) {
+        return Layers.groundEntity(groundLayer, index);
+    }
+
+    void setGroundEntity(int index, char groundEntity) {
+        int oldCode = Layers.groundCode(groundLayer, index);
+        int newCode = Layers.groundCode(groundEntity);
+        if (oldCode != newCode) {
+            if (groundLayer != boardGroundLayer) {
+                System.arraycopy(groundLayer, 0, boardGroundLayer, 0, boardGroundLayer.length);
+                groundLayer = boardGroundLayer;
+            }
+            Layers.setGroundCode(groundLayer, index, newCode);
+            layersHash ^= zobrist.groundKey(index, oldCode) ^ zobrist.groundKey(index, newCode);
+        }
+    }
+
+    char upEntity(int index) {
+        return Layers.upEntity(upLayer, index);
+    }
+
+    void setUpEntity(int index, char upEntity) {
+        int oldCode = Layers.upCode(upLayer, index);
+        int newCode = Layers.upCode(upEntity);
+        if (oldCode != newCode) {
+            if (upLayer != boardUpLayer) {
+                System.arraycopy(upLayer, 0, boardUpLayer, 0, boardUpLayer.length);
+                upLayer = boardUpLayer;
+            }
+            Layers.setUpCode(upLayer, index, newCode);
+            layersHash ^= zobrist.upKey(index, oldCode) ^ zobrist.upKey(index, newCode);
+            if (Layers.isEnemyCode(oldCode) != Layers.isEnemyCode(newCode)) {
+                if (enemies != boardEnemies) {
+                    System.arraycopy(enemies, 0, boardEnemies, 0, enemies.length);
+                    enemiesNumber = enemies.length;
+                    enemies = boardEnemies;
+                }
+                enemiesNumber = Layers.updateEnemies(enemies, enemiesNumber, index, Layers.isEnemyCode(newCode));
+            }
+        }
+    }
+
+    /**
+     * @return a move using the layers and the enemies of the board, only valid until the board is reset
+     */
+    @NotNull Move toMove(
+            int playerPositionIndex,
+            @NotNull Direction playerDirection,
+            @NotNull Move.PlayerState playerState,
+            long rupeesFound,
+            @Nullable Action action,
+            int parentPathId) {
+        return new Move(
+                playerPositionIndex,
+                playerDirection,
+                playerState,
+                groundLayer,
+                upLayer,
+                enemies,
+                rupeesFound,
+                layersHash,
+                zobrist.moveHash(layersHash, playerPositionIndex, playerDirection, playerState, rupeesFound),
+                action,
+                parentPathId);
+    }
+
+    /**
+     * @return the last move built by this board, made valid after the board is reset:
+     * the layers and the enemies still shared with the move the board started from are kept as they are,
+     * the enemies of the board are copied,
+     * and the layers of the board are interned, except the up layers of the moves with enemies
+     * which are copied, the enemies moving at each action making almost all of them distinct
+     */
+    @NotNull Move keep(@NotNull Move move) {
+        int[] keptEnemies = (move.enemies == boardEnemies) ? Arrays.copyOf(boardEnemies, enemiesNumber) : move.enemies;
+        return new Move(
+                move.playerPositionIndex,
+                move.playerDirection,
+                move.playerState,
+                (move.groundLayer == boardGroundLayer) ? layersPool.intern(move.groundLayer) : move.groundLayer,
+                (move.upLayer == boardUpLayer) ?
+                        ((keptEnemies.length == 0) ? layersPool.intern(move.upLayer) : move.upLayer.clone()) :
+                        move.upLayer,
+                keptEnemies,
+                move.rupeesFound,
+                move.layersHash,
+                move.hash,
+                move.action,
+                move.parentPathId);
+    }
+
+    /**
+     * The moves kept until now have been expanded: their layers are not shared with the next moves kept anymore.
+     */
+    void clearKept() {
+        layersPool.clear();
+    }
+}
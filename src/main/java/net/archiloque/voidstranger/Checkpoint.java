@@ -0,0 +1,490 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Snapshots of a breadth-first search written periodically in a directory, so the search can be resumed after it stopped.
+ * <p>
+ * The known moves and the paths only grow during a search, so each checkpoint appends the ones added since the previous one
+ * to {@code visited.bin} and {@code paths.bin}.
+ * Each move of the frontier has been stored in the paths just before being added to the frontier,
+ * so the frontier is the moves of the last path ids: each checkpoint only writes the moves added to the frontier
+ * since the previous one in a new {@code frontier-N.bin} segment, and removes the segments whose moves have all been expanded.
+ * It then replaces {@code state.bin}, containing the depth, the objectives reached, the numbers of known moves and paths
+ * of the snapshot, the path id of the first move of the frontier and the segments.
+ * The data written after these numbers and the segments not listed are ignored,
+ * so a checkpoint interrupted before replacing {@code state.bin} leaves the previous one valid.
+ * <p>
+ * The search only captures the data of a checkpoint, the files being written by a background thread
+ * while the search goes on: the known moves and the paths are never modified once added,
+ * and the new moves of the frontier are packed when captured.
+ */
+final class Checkpoint {
+
+    private static final int MAGIC = 0x56534350;
+    private static final int VERSION = 2;
+
+    /**
+     * The time is checked once every this number of expanded states.
+     */
+    private static final int CHECK_MASK = (1 << 12) - 1;
+
+    private static final String STATE_FILE = "state.bin";
+    private static final String VISITED_FILE = "visited.bin";
+    private static final String PATHS_FILE = "paths.bin";
+    private static final String SEGMENT_PREFIX = "frontier-";
+    private static final String SEGMENT_EXTENSION = ".bin";
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final Player.MoveStatus[] MOVE_STATUSES = Player.MoveStatus.values();
+
+    /**
+     * Where a resumed search starts.
+     *
+     * @param remainingInDepth the number of moves of the frontier that are part of the current depth
+     */
+    record Resumed(int depth, long remainingInDepth) {
+    }
+
+    /**
+     * A file of frontier moves.
+     *
+     * @param lastPathId the path id of its last move, the segment is removed once the frontier starts after it
+     */
+    private record Segment(int number, int lastPathId) {
+    }
+
+    /**
+     * Data captured by the search and written by the writer thread.
+     */
+    @FunctionalInterface
+    interface Snapshot {
+        void write(@NotNull DataOutputStream output) throws IOException;
+    }
+
+    private final @NotNull Path directory;
+    private final long periodNanos;
+    private final @NotNull Preparer.PreparationResult preparationResult;
+    private final @NotNull MoveCodec moveCodec;
+    private final @NotNull PrintStream out;
+
+    private long expanded = 0;
+    private long nextCheckpoint;
+
+    /**
+     * Number of known moves and paths in the files, -1 when the files of a previous search have not been removed yet.
+     */
+    private int writtenRecords = -1;
+    private int writtenPaths = -1;
+
+    /**
+     * The segments of the last checkpoint.
+     */
+    private final @NotNull List<Segment> segments = new ArrayList<>();
+    private int nextSegment = 0;
+
+    private @Nullable ExecutorService writer;
+    private @Nullable Future<?> writing;
+
+    /**
+     * @param period seconds between two checkpoints
+     */
+    Checkpoint(@NotNull Path directory, long period, @NotNull Preparer.PreparationResult preparationResult, @NotNull PrintStream out) {
+        this.directory = directory;
+        this.preparationResult = preparationResult;
+        this.out = out;
+        periodNanos = period * 1_000_000_000L;
+        nextCheckpoint = System.nanoTime() + periodNanos;
+        moveCodec = new MoveCodec(preparationResult.level());
+    }
+
+    /**
+     * @return null if no checkpoint directory is specified
+     */
+    static @Nullable Checkpoint create(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Options options,
+            @NotNull PrintStream out) {
+        if (options.checkpointDirectory == null) {
+            return null;
+        }
+        return new Checkpoint(
+                options.checkpointDirectory.resolve(preparationResult.level().identifier()),
+                options.checkpointPeriod,
+                preparationResult,
+                out);
+    }
+
+    /**
+     * A move is about to be expanded.
+     *
+     * @return true if a checkpoint should be written, which is not the case while the previous one is still being written
+     */
+    boolean due() {
+        expanded += 1;
+        return ((expanded & CHECK_MASK) == 0) &&
+                (System.nanoTime() >= nextCheckpoint) &&
+                ((writing == null) || writing.isDone());
+    }
+
+    /**
+     * Write a checkpoint, between the expansion of two moves.
+     * The data is captured before returning, and written in the background while the search goes on.
+     */
+    void write(
+            int depth,
+            long remainingInDepth,
+            @NotNull Deque<Move> frontier,
+            @NotNull DominanceVisitedStates knownMoves,
+            @NotNull PathStore paths,
+            @NotNull Objectives objectives) {
+        long start = System.nanoTime();
+        int firstPathId = paths.size() - frontier.size();
+        if (frontier.getFirst().pathId != firstPathId) {
+            // Only the initial move has not been expanded yet
+            return;
+        }
+        waitWriting();
+        boolean deleteFiles = writtenRecords < 0;
+        if (deleteFiles) {
+            segments.clear();
+            nextSegment = 0;
+            writtenRecords = 0;
+            writtenPaths = 0;
+        }
+        Snapshot records = knownMoves.recordsSnapshot(writtenRecords);
+        Snapshot newPaths = paths.pathsSnapshot(writtenPaths);
+        int segmentNumber = nextSegment;
+        Snapshot segment = segment(frontier, paths.size() - Math.max(writtenPaths, firstPathId));
+        List<Segment> expandedSegments = segments.stream().filter(expandedSegment -> expandedSegment.lastPathId() < firstPathId).toList();
+        segments.removeAll(expandedSegments);
+        byte[] state = state(depth, remainingInDepth, knownMoves.size(), paths.size(), objectives, firstPathId);
+        writtenRecords = knownMoves.size();
+        writtenPaths = paths.size();
+        int statesNumber = knownMoves.size();
+        int movesNumber = frontier.size();
+        long paused = System.nanoTime() - start;
+
+        writing = writer().submit(() -> {
+            long writeStart = System.nanoTime();
+            try {
+                Files.createDirectories(directory);
+                if (deleteFiles) {
+                    deleteFiles();
+                }
+                try (DataOutputStream output = append(VISITED_FILE)) {
+                    records.write(output);
+                }
+                try (DataOutputStream output = append(PATHS_FILE)) {
+                    newPaths.write(output);
+                }
+                if (segment != null) {
+                    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentFile(segmentNumber))))) {
+                        segment.write(output);
+                    }
+                }
+                Path newStateFile = directory.resolve(STATE_FILE + ".new");
+                Files.write(newStateFile, state);
+                Files.move(newStateFile, directory.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                for (Segment expandedSegment : expandedSegments) {
+                    Files.deleteIfExists(segmentFile(expandedSegment.number()));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            out.println(String.format(Locale.ROOT,
+                    "Checkpoint at depth %d: %d states and %d moves to expand written in %d ms, the search paused %d ms",
+                    depth, statesNumber, movesNumber, (System.nanoTime() - writeStart) / 1_000_000, paused / 1_000_000));
+        });
+        nextCheckpoint = System.nanoTime() + periodNanos;
+    }
+
+    /**
+     * Pack the last moves of the frontier in a new segment.
+     *
+     * @return null if there is no new move
+     */
+    private @Nullable Snapshot segment(@NotNull Deque<Move> frontier, int movesNumber) {
+        if (movesNumber <= 0) {
+            return null;
+        }
+        int[] pathIds = new int[movesNumber];
+        long[] packedMoves = new long[movesNumber * moveCodec.size];
+        Iterator<Move> iterator = frontier.descendingIterator();
+        for (int moveIndex = movesNumber - 1; moveIndex >= 0; moveIndex--) {
+            Move move = iterator.next();
+            pathIds[moveIndex] = move.pathId;
+            moveCodec.write(move, packedMoves, moveIndex * moveCodec.size);
+        }
+        segments.add(new Segment(nextSegment, pathIds[movesNumber - 1]));
+        nextSegment += 1;
+        return output -> {
+            output.writeInt(movesNumber);
+            for (int moveIndex = 0; moveIndex < movesNumber; moveIndex++) {
+                output.writeInt(pathIds[moveIndex]);
+                for (int index = moveIndex * moveCodec.size; index < (moveIndex + 1) * moveCodec.size; index++) {
+                    output.writeLong(packedMoves[index]);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the content of the state file
+     */
+    private byte @NotNull [] state(
+            int depth,
+            long remainingInDepth,
+            int recordsNumber,
+            int pathsNumber,
+            @NotNull Objectives objectives,
+            int firstPathId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(preparationResult.level().identifier());
+            output.writeLong(preparationResult.move().hash);
+            output.writeInt(depth);
+            output.writeLong(remainingInDepth);
+            output.writeInt(recordsNumber);
+            output.writeInt(pathsNumber);
+
+            Map<Player.MoveStatus, List<Action>> reached = objectives.reached();
+            output.writeInt(reached.size());
+            for (Map.Entry<Player.MoveStatus, List<Action>> solution : reached.entrySet()) {
+                output.writeByte(solution.getKey().ordinal());
+                output.writeInt(solution.getValue().size());
+                for (Action action : solution.getValue()) {
+                    output.writeByte(action.ordinal());
+                }
+            }
+
+            output.writeInt(firstPathId);
+            output.writeInt(nextSegment);
+            output.writeInt(segments.size());
+            for (Segment segment : segments) {
+                output.writeInt(segment.number());
+                output.writeInt(segment.lastPathId());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private @NotNull ExecutorService writer() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return writer;
+    }
+
+    /**
+     * Wait for the checkpoint being written, if any.
+     */
+    private void waitWriting() {
+        if (writing == null) {
+            return;
+        }
+        try {
+            writing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            writing = null;
+        }
+    }
+
+    /**
+     * The search stopped before its end, wait for the checkpoint being written so it can be resumed.
+     */
+    void close() {
+        waitWriting();
+        if (writer != null) {
+            writer.shutdown();
+            writer = null;
+        }
+    }
+
+    /**
+     * Restore the last checkpoint into empty structures.
+     *
+     * @return null if there is no checkpoint
+     */
+    @Nullable Resumed resume(
+            @NotNull Deque<Move> frontier,
+            @NotNull DominanceVisitedStates knownMoves,
+            @NotNull PathStore paths,
+            @NotNull Objectives objectives) {
+        Path stateFile = directory.resolve(STATE_FILE);
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        Resumed resumed;
+        int recordsNumber;
+        int pathsNumber;
+        int firstPathId;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+                throw new IllegalArgumentException("Invalid checkpoint " + stateFile);
+            }
+            String identifier = input.readUTF();
+            long initialHash = input.readLong();
+            if ((!identifier.equals(preparationResult.level().identifier())) || (initialHash != preparationResult.move().hash)) {
+                throw new IllegalArgumentException("Checkpoint " + stateFile + " is for another version of the level");
+            }
+            resumed = new Resumed(input.readInt(), input.readLong());
+            recordsNumber = input.readInt();
+            pathsNumber = input.readInt();
+
+            int reachedNumber = input.readInt();
+            for (int reachedIndex = 0; reachedIndex < reachedNumber; reachedIndex++) {
+                Player.MoveStatus moveStatus = MOVE_STATUSES[input.readByte()];
+                List<Action> actions = new ArrayList<>();
+                int actionsNumber = input.readInt();
+                for (int actionIndex = 0; actionIndex < actionsNumber; actionIndex++) {
+                    actions.add(ACTIONS[input.readByte()]);
+                }
+                objectives.restore(moveStatus, actions);
+            }
+
+            firstPathId = input.readInt();
+            nextSegment = input.readInt();
+            int segmentsNumber = input.readInt();
+            for (int segmentIndex = 0; segmentIndex < segmentsNumber; segmentIndex++) {
+                segments.add(new Segment(input.readInt(), input.readInt()));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        long[] packedMove = new long[moveCodec.size];
+        for (Segment segment : segments) {
+            try (DataInputStream input = read(segmentFile(segment.number()).getFileName().toString())) {
+                int movesNumber = input.readInt();
+                for (int moveIndex = 0; moveIndex < movesNumber; moveIndex++) {
+                    int pathId = input.readInt();
+                    for (int index = 0; index < packedMove.length; index++) {
+                        packedMove[index] = input.readLong();
+                    }
+                    if (pathId >= firstPathId) {
+                        Move move = moveCodec.read(packedMove, 0);
+                        move.pathId = pathId;
+                        frontier.addLast(move);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        if (frontier.size() != pathsNumber - firstPathId) {
+            throw new IllegalArgumentException("Checkpoint " + stateFile + " has " + frontier.size() + " moves to expand instead of " + (pathsNumber - firstPathId));
+        }
+
+        try (DataInputStream input = read(VISITED_FILE)) {
+            knownMoves.readRecords(input, recordsNumber);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        try (DataInputStream input = read(PATHS_FILE)) {
+            paths.readPaths(input, pathsNumber);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        truncate(VISITED_FILE, ((long) recordsNumber) * knownMoves.recordSize * Long.BYTES);
+        truncate(PATHS_FILE, ((long) pathsNumber) * PathStore.PATH_BYTES);
+        writtenRecords = recordsNumber;
+        writtenPaths = pathsNumber;
+        out.println("Resumed at depth " + resumed.depth() + " with " + recordsNumber + " states and " + frontier.size() + " moves to expand");
+        return resumed;
+    }
+
+    /**
+     * The search is over, remove its checkpoint.
+     */
+    void delete() {
+        close();
+        try {
+            if (Files.exists(directory)) {
+                deleteFiles();
+                Files.deleteIfExists(directory);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Remove the files of a checkpoint, including the segments not listed in it.
+     */
+    private void deleteFiles() throws IOException {
+        Files.deleteIfExists(directory.resolve(STATE_FILE));
+        Files.deleteIfExists(directory.resolve(STATE_FILE + ".new"));
+        Files.deleteIfExists(directory.resolve(VISITED_FILE));
+        Files.deleteIfExists(directory.resolve(PATHS_FILE));
+        try (DirectoryStream<Path> segmentFiles = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_EXTENSION)) {
+            for (Path segmentFile : segmentFiles) {
+                Files.delete(segmentFile);
+            }
+        }
+    }
+
+    private @NotNull Path segmentFile(int number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_EXTENSION);
+    }
+
+    private @NotNull DataOutputStream append(@NotNull String fileName) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                directory.resolve(fileName),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)));
+    }
+
+    private @NotNull DataInputStream read(@NotNull String fileName) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(fileName))));
+    }
+
+    /**
+     * Remove the data written after the checkpoint.
+     */
+    private void truncate(@NotNull String fileName, long size) {
+        try (FileChannel channel = FileChannel.open(directory.resolve(fileName), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Prepared levels stored in a binary file next to their level file, with the same name and a {@code .bin} extension,
+ * so they are loaded by memory-mapping the file instead of being imported again.
+ * <p>
+ * The file contains a magic number and a version followed by the fields of the {@link Level}
+ * and the player and layers of the initial {@link Move}, the Zobrist keys and the hashes being computed again.
+ * Changing the format or the preparation of the levels requires to increase {@link #VERSION},
+ * the files of another version being ignored.
+ */
+final class CompiledLevel {
+
+    private static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x56534C56;
+    private static final int VERSION = 1;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private CompiledLevel() {
+    }
+
+    /**
+     * Load a level from its compiled file if it is present and up to date, from its level file otherwise.
+     */
+    static @NotNull Preparer.PreparationResult load(@NotNull File levelFile) throws IOException {
+        Path compiledFile = compiledFile(levelFile);
+        if (Files.exists(compiledFile) &&
+                (Files.getLastModifiedTime(compiledFile).compareTo(Files.getLastModifiedTime(levelFile.toPath())) >= 0)) {
+            Preparer.PreparationResult preparationResult = read(compiledFile);
+            if (preparationResult != null) {
+                return preparationResult;
+            }
+        }
+        return Preparer.prepareLevel(levelFile);
+    }
+
+    /**
+     * Prepare a level from its level file and write its compiled file.
+     *
+     * @return the compiled file
+     */
+    static @NotNull Path compile(@NotNull File levelFile) throws IOException {
+        Path compiledFile = compiledFile(levelFile);
+        write(Preparer.prepareLevel(levelFile), compiledFile);
+        return compiledFile;
+    }
+
+    static @NotNull Path compiledFile(@NotNull File levelFile) {
+        String name = levelFile.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        return levelFile.toPath().resolveSibling(((extensionIndex < 0) ? name : name.substring(0, extensionIndex)) + EXTENSION);
+    }
+
+    static void write(@NotNull Preparer.PreparationResult preparationResult, @NotNull Path compiledFile) throws IOException {
+        Level level = preparationResult.level();
+        Move move = preparationResult.move();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compiledFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            byte[] identifier = level.identifier().getBytes(StandardCharsets.UTF_8);
+            output.writeInt(identifier.length);
+            output.write(identifier);
+            output.writeInt(level.width());
+            output.writeInt(level.height());
+            output.writeInt(level.positions().length);
+            for (Position position : level.positions()) {
+                output.writeInt(position.column());
+                output.writeInt(position.line());
+            }
+            writeInts(output, level.rupeesIndexes());
+            output.writeBoolean(level.hasChest());
+            writeInts(output, level.neighbors());
+            writeInts(output, level.chestsIndexes());
+            writeInts(output, level.frozenBoulderCells());
+
+            output.writeInt(move.playerPositionIndex);
+            output.writeByte(move.playerDirection.ordinal());
+            writeLongs(output, move.groundLayer);
+            writeLongs(output, move.upLayer);
+        }
+    }
+
+    /**
+     * @return null if the file has another format
+     */
+    static @Nullable Preparer.PreparationResult read(@NotNull Path compiledFile) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(compiledFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if ((buffer.remaining() < 2 * Integer.BYTES) || (buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+            return null;
+        }
+
+        byte[] identifier = new byte[buffer.getInt()];
+        buffer.get(identifier);
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        Position[] positions = new Position[buffer.getInt()];
+        for (int positionIndex = 0; positionIndex < positions.length; positionIndex++) {
+            positions[positionIndex] = new Position(buffer.getInt(), buffer.getInt());
+        }
+        int[] rupeesIndexes = readInts(buffer);
+        boolean hasChest = buffer.get() != 0;
+        int[] neighbors = readInts(buffer);
+        int[] chestsIndexes = readInts(buffer);
+        int[] frozenBoulderCells = readInts(buffer);
+        Level level = new Level(
+                new String(identifier, StandardCharsets.UTF_8),
+                width,
+                height,
+                positions,
+                rupeesIndexes,
+                hasChest,
+                Zobrist.create(positions.length, rupeesIndexes.length),
+                neighbors,
+                chestsIndexes,
+                frozenBoulderCells);
+
+        int playerPositionIndex = buffer.getInt();
+        Direction playerDirection = DIRECTIONS[buffer.get()];
+        long[] groundLayer = readLongs(buffer);
+        long[] upLayer = readLongs(buffer);
+        return new Preparer.PreparationResult(level, Preparer.initialMove(level, playerPositionIndex, playerDirection, groundLayer, upLayer));
+    }
+
+    private static void writeInts(@NotNull DataOutputStream output, int @NotNull [] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeLongs(@NotNull DataOutputStream output, long @NotNull [] values) throws IOException {
+        output.writeInt(values.length);
+        for (long value : values) {
+            output.writeLong(value);
+        }
+    }
+
+    private static int @NotNull [] readInts(@NotNull ByteBuffer buffer) {
+        int[] values = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static long @NotNull [] readLongs(@NotNull ByteBuffer buffer) {
+        long[] values = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,284 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Detect the moves from which none of the pending objectives can be reached.
+ * The chests and the boulders on a frozen cell never move,
+ * so the player can only reach the cells around them,
+ * all the other cells being considered passable.
+ * As long as no boulder is on a frozen cell the player stays in the area
+ * delimited by the chests, so the result computed for the initial move is used.
+ * Otherwise the cells are split into the areas delimited by the chests and the frozen boulders,
+ * which are kept for each configuration of the frozen boulders.
+ * Not thread-safe, as it keeps these areas and reuses its buffers.
+ */
+final class DeadStates implements GroundEntity, UpEntity {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Number of configurations of the frozen boulders whose areas are kept, the cache being cleared when it is full.
+     */
+    private static final int MAX_CACHED_AREAS = 1 << 14;
+
+    /**
+     * Area of the cells the player can't enter.
+     */
+    private static final int BLOCKED = -1;
+    private static final int NO_AREA = -2;
+
+    /**
+     * The frozen cells with a boulder, as a bitset indexed like {@link Level#frozenBoulderCells()}.
+     */
+    private record FrozenBoulders(long @NotNull [] bitset) {
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof FrozenBoulders frozenBoulders) && Arrays.equals(bitset, frozenBoulders.bitset);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bitset);
+        }
+    }
+
+    private final @NotNull Level level;
+    private final int @NotNull [] initialDownstairCells;
+    private final boolean initialDownstairReachable;
+    private final boolean @NotNull [] initialRupeesReachable;
+    private final boolean @NotNull [] initialChestsReachable;
+
+    private final @NotNull Map<FrozenBoulders, int[]> areas = new HashMap<>();
+    private final long @NotNull [] frozenBoulders;
+    private final int @NotNull [] queue;
+
+    DeadStates(@NotNull Level level, @NotNull Move initialMove) {
+        this.level = level;
+        frozenBoulders = new long[(level.frozenBoulderCells().length + 63) >>> 6];
+        queue = new int[level.positions().length];
+        initialDownstairCells = IntStream.range(0, level.positions().length)
+                .filter(cell -> initialMove.groundEntity(cell) == ENTITY_GROUND_DOWNSTAIR)
+                .toArray();
+        int[] cellsAreas = cellsAreas(initialMove);
+        int playerArea = cellsAreas[initialMove.playerPositionIndex()];
+        initialDownstairReachable = downstairReachable(initialMove, cellsAreas, playerArea);
+        initialRupeesReachable = new boolean[level.rupeesIndexes().length];
+        for (int rupeeIndex = 0; rupeeIndex < initialRupeesReachable.length; rupeeIndex++) {
+            initialRupeesReachable[rupeeIndex] = rupeeReachable(cellsAreas, playerArea, level.rupeesIndexes()[rupeeIndex]);
+        }
+        initialChestsReachable = new boolean[level.chestsIndexes().length];
+        for (int chestIndex = 0; chestIndex < initialChestsReachable.length; chestIndex++) {
+            initialChestsReachable[chestIndex] = chestReachable(cellsAreas, playerArea, level.chestsIndexes()[chestIndex]);
+        }
+    }
+
+    /**
+     * @return the objectives that can still be reached from the initial move
+     */
+    @NotNull Set<Player.MoveStatus> initialObjectives(@NotNull Set<Player.MoveStatus> objectives) {
+        boolean rupeesReachable = true;
+        for (boolean rupeeReachable : initialRupeesReachable) {
+            rupeesReachable &= rupeeReachable;
+        }
+        boolean chestsReachable = true;
+        for (boolean chestReachable : initialChestsReachable) {
+            chestsReachable &= chestReachable;
+        }
+        Set<Player.MoveStatus> result = EnumSet.noneOf(Player.MoveStatus.class);
+        for (Player.MoveStatus objective : objectives) {
+            boolean reachableObjective = switch (objective) {
+                case WIN -> rupeesReachable && chestsReachable;
+                case RUPEE -> rupeesReachable;
+                case CHEST -> chestsReachable;
+                case EXIT -> true;
+                case LOOSE -> false;
+            };
+            if (reachableObjective) {
+                result.add(objective);
+            }
+        }
+        return result;
+    }
+
+    boolean isDead(@NotNull MoveView move, @NotNull Set<Player.MoveStatus> pendingObjectives) {
+        if ((move.playerState() == Move.PlayerState.HOLD_DOWNSTAIR) ||
+                (move.groundEntity(move.playerPositionIndex()) == ENTITY_GROUND_DOWNSTAIR)) {
+            return false;
+        }
+
+        boolean downstairReachable;
+        boolean rupeesReachable = true;
+        boolean chestsReachable = true;
+        int[] rupeesIndexes = level.rupeesIndexes();
+        int[] chestsIndexes = level.chestsIndexes();
+        if (hasFrozenBoulder(move)) {
+            int[] cellsAreas = areas(move);
+            int playerArea = cellsAreas[move.playerPositionIndex()];
+            downstairReachable = downstairReachable(move, cellsAreas, playerArea);
+            for (int rupeeIndex = 0; rupeesReachable && (rupeeIndex < rupeesIndexes.length); rupeeIndex++) {
+                rupeesReachable = move.rupeeFound(rupeeIndex) || rupeeReachable(cellsAreas, playerArea, rupeesIndexes[rupeeIndex]);
+            }
+            for (int chestIndex = 0; chestsReachable && (chestIndex < chestsIndexes.length); chestIndex++) {
+                chestsReachable = (move.upEntity(chestsIndexes[chestIndex]) != ENTITY_UP_CHEST_CLOSED) ||
+                        chestReachable(cellsAreas, playerArea, chestsIndexes[chestIndex]);
+            }
+        } else {
+            downstairReachable = initialDownstairReachable;
+            for (int rupeeIndex = 0; rupeesReachable && (rupeeIndex < rupeesIndexes.length); rupeeIndex++) {
+                rupeesReachable = move.rupeeFound(rupeeIndex) || initialRupeesReachable[rupeeIndex];
+            }
+            for (int chestIndex = 0; chestsReachable && (chestIndex < chestsIndexes.length); chestIndex++) {
+                chestsReachable = (move.upEntity(chestsIndexes[chestIndex]) != ENTITY_UP_CHEST_CLOSED) ||
+                        initialChestsReachable[chestIndex];
+            }
+        }
+        if (!downstairReachable) {
+            return true;
+        }
+
+        for (Player.MoveStatus pendingObjective : pendingObjectives) {
+            boolean reachableObjective = switch (pendingObjective) {
+                case WIN -> rupeesReachable && chestsReachable;
+                case RUPEE -> rupeesReachable;
+                case CHEST -> chestsReachable;
+                case EXIT -> true;
+                case LOOSE -> false;
+            };
+            if (reachableObjective) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill {@link #frozenBoulders} with the frozen cells of the move having a boulder.
+     *
+     * @return true if there is at least one
+     */
+    private boolean hasFrozenBoulder(@NotNull MoveView move) {
+        Arrays.fill(frozenBoulders, 0);
+        boolean result = false;
+        int[] frozenBoulderCells = level.frozenBoulderCells();
+        for (int frozenIndex = 0; frozenIndex < frozenBoulderCells.length; frozenIndex++) {
+            if (move.upEntity(frozenBoulderCells[frozenIndex]) == ENTITY_UP_BOULDER) {
+                frozenBoulders[frozenIndex >>> 6] |= 1L << frozenIndex;
+                result = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the areas of the frozen boulders configuration in {@link #frozenBoulders}
+     */
+    private int @NotNull [] areas(@NotNull MoveView move) {
+        int[] cellsAreas = areas.get(new FrozenBoulders(frozenBoulders));
+        if (cellsAreas == null) {
+            if (areas.size() >= MAX_CACHED_AREAS) {
+                areas.clear();
+            }
+            cellsAreas = cellsAreas(move);
+            areas.put(new FrozenBoulders(frozenBoulders.clone()), cellsAreas);
+        }
+        return cellsAreas;
+    }
+
+    /**
+     * @return the area of each cell, two cells being in the same area if the player can walk from one to the other,
+     * or {@link #BLOCKED}
+     */
+    private int @NotNull [] cellsAreas(@NotNull MoveView move) {
+        int cellsNumber = level.positions().length;
+        int[] cellsAreas = new int[cellsNumber];
+        for (int cell = 0; cell < cellsNumber; cell++) {
+            cellsAreas[cell] = blocked(move, cell) ? BLOCKED : NO_AREA;
+        }
+        int area = 0;
+        for (int startCell = 0; startCell < cellsNumber; startCell++) {
+            if (cellsAreas[startCell] != NO_AREA) {
+                continue;
+            }
+            int queueStart = 0;
+            int queueEnd = 0;
+            queue[queueEnd++] = startCell;
+            cellsAreas[startCell] = area;
+            while (queueStart < queueEnd) {
+                int cell = queue[queueStart++];
+                for (Direction direction : DIRECTIONS) {
+                    int neighbor = level.neighbor(cell, direction);
+                    if ((neighbor >= 0) && (cellsAreas[neighbor] == NO_AREA)) {
+                        cellsAreas[neighbor] = area;
+                        queue[queueEnd++] = neighbor;
+                    }
+                }
+            }
+            area += 1;
+        }
+        return cellsAreas;
+    }
+
+    /**
+     * The downstairs can only be moved by the player, so the other cells are only checked when one of them has been moved.
+     */
+    private boolean downstairReachable(@NotNull MoveView move, int @NotNull [] cellsAreas, int playerArea) {
+        boolean downstairMoved = false;
+        for (int cell : initialDownstairCells) {
+            if (move.groundEntity(cell) == ENTITY_GROUND_DOWNSTAIR) {
+                if (cellsAreas[cell] == playerArea) {
+                    return true;
+                }
+            } else {
+                downstairMoved = true;
+            }
+        }
+        if (downstairMoved) {
+            for (int cell = 0; cell < cellsAreas.length; cell++) {
+                if ((cellsAreas[cell] == playerArea) && (move.groundEntity(cell) == ENTITY_GROUND_DOWNSTAIR)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A rupee is absorbed from a cell next to it.
+     */
+    private boolean rupeeReachable(int @NotNull [] cellsAreas, int playerArea, int rupeeCell) {
+        if (cellsAreas[rupeeCell] == BLOCKED) {
+            return false;
+        }
+        for (Direction direction : DIRECTIONS) {
+            int neighbor = level.neighbor(rupeeCell, direction);
+            if ((neighbor >= 0) && (cellsAreas[neighbor] == playerArea)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A chest is opened from the cell under it.
+     */
+    private boolean chestReachable(int @NotNull [] cellsAreas, int playerArea, int chestCell) {
+        int below = level.neighbor(chestCell, Direction.Down);
+        return (below >= 0) && (cellsAreas[below] == playerArea);
+    }
+
+    private boolean blocked(@NotNull MoveView move, int cell) {
+        char upEntity = move.upEntity(cell);
+        return (upEntity == ENTITY_UP_CHEST_CLOSED) ||
+                (upEntity == ENTITY_UP_CHEST_OPEN) ||
+                ((upEntity == ENTITY_UP_BOULDER) && level.frozenBoulderCell(cell));
+    }
+}
@@ -0,0 +1,266 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Set of the moves already seen during a breadth-first search that also rejects the dominated moves:
+ * the moves with the same player and layout as a move seen before, and a subset of its rupees found or chests opened.
+ * The rules never depend on the rupees found, and an opened chest blocks like a closed one,
+ * so a dominated move can't reach an objective sooner than the move dominating it.
+ * <p>
+ * Only the objectives still pending allow it:
+ * finding more rupees turns an exit or a chest into another objective,
+ * and opening more chests turns an exit or a rupee into another objective.
+ * <p>
+ * The layouts are stored with closed chests and hashed without the rupees and the chests,
+ * so all the moves with the same layout are met when probing for one of them.
+ * Like in {@link VisitedStates}, the moves are packed into records stored in pages of longs.
+ */
+final class DominanceVisitedStates implements UpEntity {
+
+    private static final int PAGE_SIZE = 1 << 18;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    private static final int CHEST_CLOSED_CODE = Layers.upCode(ENTITY_UP_CHEST_CLOSED);
+    private static final int CHEST_OPEN_CODE = Layers.upCode(ENTITY_UP_CHEST_OPEN);
+
+    private final @NotNull Level level;
+    private final int groundLayerSize;
+    private final int upLayerSize;
+
+    /**
+     * Number of longs of a record: the packed move followed by the opened chests.
+     */
+    final int recordSize;
+    private final int recordsPerPage;
+
+    private long @NotNull [] @NotNull [] pages = new long[1][];
+    private long @NotNull [] table = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    DominanceVisitedStates(@NotNull Level level) {
+        this.level = level;
+        MoveCodec moveCodec = new MoveCodec(level);
+        groundLayerSize = moveCodec.groundLayerSize;
+        upLayerSize = moveCodec.upLayerSize;
+        recordSize = moveCodec.size + 1;
+        recordsPerPage = PAGE_SIZE / recordSize;
+    }
+
+    /**
+     * @return true if the move was not already present nor dominated
+     */
+    boolean add(@NotNull Move move, @NotNull Set<Player.MoveStatus> pendingObjectives) {
+        return lookup(move, pendingObjectives, true);
+    }
+
+    /**
+     * @return true if the move is already present or dominated, without adding it
+     */
+    boolean contains(@NotNull Move move, @NotNull Set<Player.MoveStatus> pendingObjectives) {
+        return !lookup(move, pendingObjectives, false);
+    }
+
+    /**
+     * @param add add the move if it is not present nor dominated
+     * @return true if the move was not present nor dominated
+     */
+    private boolean lookup(@NotNull Move move, @NotNull Set<Player.MoveStatus> pendingObjectives, boolean add) {
+        boolean rupeesDominance = !(pendingObjectives.contains(Player.MoveStatus.EXIT) || pendingObjectives.contains(Player.MoveStatus.CHEST));
+        boolean chestsDominance = !(pendingObjectives.contains(Player.MoveStatus.EXIT) || pendingObjectives.contains(Player.MoveStatus.RUPEE));
+        if (add && (size >= table.length * MAX_LOAD_FACTOR)) {
+            resize();
+        }
+
+        long openedChests = 0;
+        long[] layoutUpLayer = move.upLayer;
+        long layoutHash = move.hash ^ level.zobrist().rupeesHash(move.rupeesFound);
+        int[] chestsIndexes = level.chestsIndexes();
+        for (int chestIndex = 0; chestIndex < chestsIndexes.length; chestIndex++) {
+            int chestCell = chestsIndexes[chestIndex];
+            if (Layers.upCode(move.upLayer, chestCell) == CHEST_OPEN_CODE) {
+                openedChests |= 1L << chestIndex;
+                if (layoutUpLayer == move.upLayer) {
+                    layoutUpLayer = move.upLayer.clone();
+                }
+                Layers.setUpCode(layoutUpLayer, chestCell, CHEST_CLOSED_CODE);
+                layoutHash ^= level.zobrist().upKey(chestCell, CHEST_OPEN_CODE) ^ level.zobrist().upKey(chestCell, CHEST_CLOSED_CODE);
+            }
+        }
+
+        int fingerprint = (int) (layoutHash >>> 32);
+        int mask = table.length - 1;
+        int slot = fingerprint & mask;
+        while (true) {
+            long entry = table[slot];
+            if (entry == 0) {
+                if (add) {
+                    int record = append(move, layoutUpLayer, openedChests);
+                    table[slot] = (((long) fingerprint) << 32) | (record + 1L);
+                }
+                return true;
+            }
+            if ((int) (entry >>> 32) == fingerprint) {
+                int record = ((int) entry) - 1;
+                long[] page = pages[record / recordsPerPage];
+                int offset = (record % recordsPerPage) * recordSize;
+                if (sameLayout(page, offset, move, layoutUpLayer) &&
+                        dominates(page[offset + 1], move.rupeesFound, rupeesDominance) &&
+                        dominates(page[offset + recordSize - 1], openedChests, chestsDominance)) {
+                    return false;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes used by each state once the table is at its maximum load factor,
+     * including its entry in the {@link PathStore}
+     */
+    static long bytesPerState(@NotNull Level level) {
+        return (long) ((new MoveCodec(level).size + 1 + (1 / MAX_LOAD_FACTOR)) * Long.BYTES) + PathStore.PATH_BYTES;
+    }
+
+    double loadFactor() {
+        return ((double) size) / table.length;
+    }
+
+    /**
+     * @return the number of bytes used by the table and the records
+     */
+    long memoryUsage() {
+        long pagesNumber = Arrays.stream(pages).filter(Objects::nonNull).count();
+        return (((long) table.length) + (pagesNumber * PAGE_SIZE)) * Long.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d states, load factor %.2f, %d MB",
+                size,
+                loadFactor(),
+                memoryUsage() / (1024 * 1024));
+    }
+
+    private static boolean dominates(long stored, long progress, boolean dominance) {
+        return dominance ? ((stored & progress) == progress) : (stored == progress);
+    }
+
+    private boolean sameLayout(long @NotNull [] page, int offset, @NotNull Move move, long @NotNull [] layoutUpLayer) {
+        return (page[offset] == MoveCodec.header(move)) &&
+                Arrays.equals(
+                        page, offset + 2, offset + 2 + groundLayerSize,
+                        move.groundLayer, 0, groundLayerSize) &&
+                Arrays.equals(
+                        page, offset + 2 + groundLayerSize, offset + 2 + groundLayerSize + upLayerSize,
+                        layoutUpLayer, 0, upLayerSize);
+    }
+
+    /**
+     * @return the records added since a previous call, for a {@link Checkpoint}:
+     * the records are never modified once added, so they can be written while new ones are added
+     */
+    @NotNull Checkpoint.Snapshot recordsSnapshot(int fromRecord) {
+        long[][] snapshotPages = pages.clone();
+        int toRecord = size;
+        return output -> {
+            for (int record = fromRecord; record < toRecord; record++) {
+                long[] page = snapshotPages[record / recordsPerPage];
+                int offset = (record % recordsPerPage) * recordSize;
+                for (int index = offset; index < offset + recordSize; index++) {
+                    output.writeLong(page[index]);
+                }
+            }
+        };
+    }
+
+    /**
+     * Add the records written by {@link #recordsSnapshot}, their hashes being computed again.
+     */
+    void readRecords(@NotNull DataInputStream input, int recordsNumber) throws IOException {
+        Zobrist zobrist = level.zobrist();
+        for (int recordIndex = 0; recordIndex < recordsNumber; recordIndex++) {
+            if (size >= table.length * MAX_LOAD_FACTOR) {
+                resize();
+            }
+            int record = size;
+            long[] page = page(record);
+            int offset = (record % recordsPerPage) * recordSize;
+            for (int index = offset; index < offset + recordSize; index++) {
+                page[index] = input.readLong();
+            }
+            size += 1;
+
+            long header = page[offset];
+            long[] groundLayer = Arrays.copyOfRange(page, offset + 2, offset + 2 + groundLayerSize);
+            long[] layoutUpLayer = Arrays.copyOfRange(page, offset + 2 + groundLayerSize, offset + 2 + groundLayerSize + upLayerSize);
+            long layoutHash = zobrist.moveHash(
+                    zobrist.layersHash(groundLayer, layoutUpLayer, level.positions().length),
+                    MoveCodec.playerPositionIndex(header),
+                    MoveCodec.playerDirection(header),
+                    MoveCodec.playerState(header),
+                    0L);
+            int fingerprint = (int) (layoutHash >>> 32);
+            int mask = table.length - 1;
+            int slot = fingerprint & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = (((long) fingerprint) << 32) | (record + 1L);
+        }
+    }
+
+    private long @NotNull [] page(int record) {
+        int pageIndex = record / recordsPerPage;
+        if (pageIndex == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+        long[] page = pages[pageIndex];
+        if (page == null) {
+            page = new long[PAGE_SIZE];
+            pages[pageIndex] = page;
+        }
+        return page;
+    }
+
+    private int append(@NotNull Move move, long @NotNull [] layoutUpLayer, long openedChests) {
+        int record = size;
+        long[] page = page(record);
+        int offset = (record % recordsPerPage) * recordSize;
+        page[offset] = MoveCodec.header(move);
+        page[offset + 1] = move.rupeesFound;
+        System.arraycopy(move.groundLayer, 0, page, offset + 2, groundLayerSize);
+        System.arraycopy(layoutUpLayer, 0, page, offset + 2 + groundLayerSize, upLayerSize);
+        page[offset + recordSize - 1] = openedChests;
+        size += 1;
+        return record;
+    }
+
+    private void resize() {
+        long[] newTable = new long[table.length * 2];
+        int mask = newTable.length - 1;
+        for (long entry : table) {
+            if (entry != 0) {
+                int slot = ((int) (entry >>> 32)) & mask;
+                while (newTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[slot] = entry;
+            }
+        }
+        table = newTable;
+    }
+}
@@ -0,0 +1,114 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Check that {@link InPlaceBoard} follows the same rules as {@link Player}:
+ * the moves of a level are explored depth-first on an in-place board,
+ * each action being compared with the move generated for it by {@link Player#nextMoves},
+ * and each reverted action having to restore the previous move.
+ * The depth-first search can go as deep as the number of states, so it stops after {@link #DEFAULT_MAX_STATES} states
+ * unless another number is specified.
+ */
+final class EngineCheck {
+
+    /**
+     * Number of states checked when no maximum is specified.
+     */
+    static final long DEFAULT_MAX_STATES = 1_000_000;
+
+    private static final Action[] ACTIONS = Action.values();
+
+    /**
+     * A move being explored.
+     */
+    private static final class Node {
+
+        private final @NotNull Move move;
+        private int nextAction = 0;
+
+        private Node(@NotNull Move move) {
+            this.move = move;
+        }
+    }
+
+    private EngineCheck() {
+    }
+
+    /**
+     * @param maxStates the check stops after this number of states
+     */
+    static void run(@NotNull Preparer.PreparationResult preparationResult, @NotNull PrintStream out, long maxStates) {
+        Level level = preparationResult.level();
+        Board board = new Board(level);
+        InPlaceBoard inPlaceBoard = new InPlaceBoard(level, preparationResult.move());
+        VisitedStates knownMoves = new VisitedStates(level);
+        knownMoves.add(preparationResult.move());
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(new Node(preparationResult.move()));
+        long checkedActions = 0;
+
+        while (!nodes.isEmpty()) {
+            Node node = nodes.peek();
+            if (node.nextAction == ACTIONS.length) {
+                nodes.pop();
+                if (!nodes.isEmpty()) {
+                    inPlaceBoard.unmake();
+                    check(nodes.peek().move, inPlaceBoard.toMove(), "Reverting an action");
+                }
+                continue;
+            }
+            Action action = ACTIONS[node.nextAction++];
+            Move expectedMove = nextMove(level, board, node.move, action);
+            checkedActions += 1;
+            if (!inPlaceBoard.make(action)) {
+                if (expectedMove != null) {
+                    throw new IllegalStateException(action + " should be possible from " + node.move);
+                }
+                check(node.move, inPlaceBoard.toMove(), "Rejecting " + action);
+                continue;
+            }
+            Move move = inPlaceBoard.toMove();
+            if (expectedMove == null) {
+                throw new IllegalStateException(action + " should not be possible from " + node.move);
+            }
+            check(expectedMove, move, "Applying " + action);
+            if ((knownMoves.size() < maxStates) &&
+                    (Player.moveStatus(move, level) == Player.MoveStatus.LOOSE) &&
+                    knownMoves.add(move)) {
+                nodes.push(new Node(move.copy()));
+            } else {
+                inPlaceBoard.unmake();
+                check(node.move, inPlaceBoard.toMove(), "Reverting " + action);
+            }
+        }
+        out.println(knownMoves.size() + " states and " + checkedActions + " actions checked");
+    }
+
+    /**
+     * @return the move generated by {@link Player} for the action, null when the action is not possible
+     */
+    private static @Nullable Move nextMove(@NotNull Level level, @NotNull Board board, @NotNull Move move, @NotNull Action action) {
+        Move[] result = new Move[1];
+        Player.nextMoves(level, board, move, nextMove -> {
+            if (nextMove.action == action) {
+                result[0] = board.keep(nextMove);
+                return true;
+            }
+            return false;
+        });
+        return result[0];
+    }
+
+    private static void check(@NotNull Move expectedMove, @NotNull Move move, @NotNull String step) {
+        if ((!expectedMove.equals(move)) || (!Arrays.equals(expectedMove.enemies, move.enemies))) {
+            throw new IllegalStateException(step + " gives " + move + " instead of " + expectedMove);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package net.archiloque.voidstranger;
+
+import net.archiloque.voidstranger.importer.ImporterEntities;
+import net.archiloque.voidstranger.importer.ImporterEntity;
+import net.archiloque.voidstranger.importer.ImporterEntityWithDirection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The entities of an imported level indexed by line and column,
+ * so each cell is filled once instead of searching the lists of entities for each cell.
+ * When several entities of the same layer are on a cell the first one in the order of the checks is kept.
+ */
+final class EntitiesGrid implements GroundEntity, UpEntity {
+
+    private static final char NO_ENTITY = 0;
+
+    /**
+     * Highest line and column of all the entities.
+     */
+    final int maxLine;
+    final int maxColumn;
+
+    private final int columns;
+    private final char @NotNull [] groundEntities;
+    private final char @NotNull [] upEntities;
+
+    /**
+     * Index of the cells with a ground entity in the line then column order, -1 for the other cells.
+     */
+    private final int @NotNull [] cellsIndexes;
+    private final @NotNull Position @NotNull [] cellsPositions;
+
+    EntitiesGrid(@NotNull ImporterEntities entities) {
+        int maxLine = 0;
+        int maxColumn = 0;
+        for (List<? extends ImporterEntity> entitiesList : allEntities(entities)) {
+            if (entitiesList != null) {
+                for (ImporterEntity entity : entitiesList) {
+                    maxLine = Math.max(maxLine, line(entity));
+                    maxColumn = Math.max(maxColumn, column(entity));
+                }
+            }
+        }
+        this.maxLine = maxLine;
+        this.maxColumn = maxColumn;
+        columns = maxColumn + 1;
+        int cellsNumber = (maxLine + 1) * columns;
+
+        groundEntities = new char[cellsNumber];
+        fill(groundEntities, entities.ground(), ENTITY_GROUND_GROUND);
+        fill(groundEntities, entities.hole(), ENTITY_GROUND_HOLE);
+        fill(groundEntities, entities.glass(), ENTITY_GROUND_GLASS);
+        fill(groundEntities, entities.downStairs(), ENTITY_GROUND_DOWNSTAIR);
+
+        upEntities = new char[cellsNumber];
+        fill(upEntities, entities.chest(), ENTITY_UP_CHEST_CLOSED);
+        fill(upEntities, entities.boulder(), ENTITY_UP_BOULDER);
+        fill(upEntities, entities.enemySeeker(), ENTITY_UP_ENEMY_SEEKER);
+        if (entities.enemyBasic() != null) {
+            for (ImporterEntityWithDirection enemy : entities.enemyBasic()) {
+                int cell = cell(enemy);
+                if (upEntities[cell] == NO_ENTITY) {
+                    upEntities[cell] = switch (enemy.getDirection()) {
+                        case Up -> ENTITY_UP_ENEMY_BASIC_FACING_UP;
+                        case Down -> ENTITY_UP_ENEMY_BASIC_FACING_DOWN;
+                        case Left -> ENTITY_UP_ENEMY_BASIC_FACING_LEFT;
+                        case Right -> ENTITY_UP_ENEMY_BASIC_FACING_RIGHT;
+                    };
+                }
+            }
+        }
+
+        cellsIndexes = new int[cellsNumber];
+        int cellsIndex = 0;
+        for (int cell = 0; cell < cellsNumber; cell++) {
+            cellsIndexes[cell] = (groundEntities[cell] == NO_ENTITY) ? -1 : cellsIndex++;
+        }
+        cellsPositions = new Position[cellsIndex];
+        for (int cell = 0; cell < cellsNumber; cell++) {
+            if (cellsIndexes[cell] >= 0) {
+                cellsPositions[cellsIndexes[cell]] = new Position(cell % columns, cell / columns);
+            }
+        }
+    }
+
+    /**
+     * @return the positions of the cells with a ground entity, in the line then column order
+     */
+    @NotNull Position @NotNull [] cellsPositions() {
+        return cellsPositions;
+    }
+
+    /**
+     * @return the index of the cell at a position, -1 if there is no ground entity there
+     */
+    int cellIndex(@NotNull Position position) {
+        if ((position.column() < 0) || (position.column() > maxColumn) ||
+                (position.line() < 0) || (position.line() > maxLine)) {
+            return -1;
+        }
+        return cellsIndexes[position.line() * columns + position.column()];
+    }
+
+    int cellIndex(@NotNull ImporterEntity entity) {
+        return cellIndex(position(entity));
+    }
+
+    char groundEntity(int cellIndex) {
+        return groundEntities[cell(cellsPositions[cellIndex])];
+    }
+
+    char upEntity(int cellIndex) {
+        char upEntity = upEntities[cell(cellsPositions[cellIndex])];
+        return (upEntity == NO_ENTITY) ? ENTITY_UP_EMPTY : upEntity;
+    }
+
+    static @NotNull Position position(@NotNull ImporterEntity entity) {
+        return new Position(column(entity), line(entity));
+    }
+
+    private static int column(@NotNull ImporterEntity entity) {
+        return entity.getX() / 16;
+    }
+
+    private static int line(@NotNull ImporterEntity entity) {
+        return entity.getY() / 16;
+    }
+
+    private int cell(@NotNull Position position) {
+        return position.line() * columns + position.column();
+    }
+
+    private int cell(@NotNull ImporterEntity entity) {
+        return line(entity) * columns + column(entity);
+    }
+
+    private void fill(char @NotNull [] layer, @Nullable List<? extends ImporterEntity> entities, char entity) {
+        if (entities != null) {
+            for (ImporterEntity importerEntity : entities) {
+                int cell = cell(importerEntity);
+                if (layer[cell] == NO_ENTITY) {
+                    layer[cell] = entity;
+                }
+            }
+        }
+    }
+
+    private static @NotNull List<@Nullable List<? extends ImporterEntity>> allEntities(@NotNull ImporterEntities entities) {
+        return Arrays.asList(
+                entities.boulder(),
+                entities.chest(),
+                entities.downStairs(),
+                entities.enemyBasic(),
+                entities.enemySeeker(),
+                entities.glass(),
+                entities.ground(),
+                entities.hole(),
+                entities.playerStartPosition(),
+                entities.rupee(),
+                entities.wall());
+    }
+}
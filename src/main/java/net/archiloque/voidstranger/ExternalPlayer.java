@@ -0,0 +1,342 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Breadth-first search keeping its states on disk, for the levels whose states do not fit in memory.
+ * Each depth is a file of packed moves sorted by content, each followed by a link to its parent:
+ * its index in the previous depth and the action.
+ * The successors of a depth are sorted in memory-sized runs,
+ * then merged with the files of the previous depths to remove the moves already seen.
+ */
+public class ExternalPlayer {
+
+    /**
+     * Size of the buffer used to sort the runs, 32 MB.
+     */
+    private static final int RUN_BUFFER_SIZE = 1 << 22;
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private final @NotNull Level level;
+    private final @NotNull MoveCodec moveCodec;
+    private final @NotNull Objectives objectives;
+    private final @NotNull DeadStates deadStates;
+    private final @NotNull Path directory;
+
+    /**
+     * Number of longs of a packed move, the link to its parent is after it.
+     */
+    private final int stateSize;
+    private final int recordSize;
+
+    private final @NotNull List<Path> depths = new ArrayList<>();
+    private final @NotNull List<Path> runs = new ArrayList<>();
+    private final long @NotNull [] runBuffer;
+    private int runRecords = 0;
+    private long states = 0;
+    private long diskUsage = 0;
+
+    private record Cursor(@NotNull RecordFile.Reader reader, long @NotNull [] record, int order, boolean seen) {
+    }
+
+    private ExternalPlayer(@NotNull Preparer.PreparationResult preparationResult, @NotNull Set<Player.MoveStatus> targets, @NotNull Path directory) {
+        level = preparationResult.level();
+        moveCodec = new MoveCodec(level);
+        objectives = new Objectives(preparationResult, targets);
+        deadStates = new DeadStates(level, preparationResult.move());
+        this.directory = directory;
+        stateSize = moveCodec.size;
+        recordSize = stateSize + 1;
+        runBuffer = new long[(RUN_BUFFER_SIZE / recordSize) * recordSize];
+    }
+
+    /**
+     * @param targets   the objectives to search
+     * @param maxStates the search stops after this number of states
+     */
+    static @NotNull SearchResult play(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Set<Player.MoveStatus> targets,
+            @NotNull PrintStream out,
+            long maxStates) {
+        try {
+            Path directory = Files.createTempDirectory("void-stranger-" + preparationResult.level().identifier() + "-");
+            try {
+                return new ExternalPlayer(preparationResult, targets, directory).play(preparationResult.move(), out, maxStates);
+            } finally {
+                try (Stream<Path> paths = Files.walk(directory)) {
+                    for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(path);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private @NotNull SearchResult play(@NotNull Move initialMove, @NotNull PrintStream out, long maxStates) throws IOException {
+        Path initialDepth = directory.resolve("depth-0");
+        try (RecordFile.Writer writer = new RecordFile.Writer(initialDepth, recordSize)) {
+            long[] record = new long[recordSize];
+            moveCodec.write(initialMove, record, 0);
+            record[stateSize] = -1;
+            writer.write(record, 0);
+        }
+        addDepth(initialDepth, 1);
+
+        while (true) {
+            int depth = depths.size() - 1;
+            expand(depth);
+            Path nextDepth = directory.resolve("depth-" + (depth + 1));
+            long nextStates = merge(nextDepth, depth + 1);
+            if (objectives.done()) {
+                out.println(this);
+                return new SearchResult(objectives.outcome(), objectives.reached(), states + nextStates);
+            }
+            addDepth(nextDepth, nextStates);
+            if (nextStates == 0) {
+                out.println(this);
+                out.println(" ### Fail !");
+                return new SearchResult(SearchResult.Outcome.FAIL, objectives.reached(), states);
+            }
+            if (states >= maxStates) {
+                out.println(this);
+                out.println(" ### Aborted !");
+                return new SearchResult(SearchResult.Outcome.ABORTED, objectives.reached(), states);
+            }
+        }
+    }
+
+    private void addDepth(@NotNull Path path, long records) throws IOException {
+        depths.add(path);
+        states += records;
+        diskUsage += Files.size(path);
+    }
+
+    /**
+     * Write the successors of the moves of a depth to sorted runs.
+     */
+    private void expand(int depth) throws IOException {
+        try (RecordFile.Reader reader = new RecordFile.Reader(depths.get(depth), recordSize)) {
+            long[] record = new long[recordSize];
+            Board board = new Board(level);
+            long index = 0;
+            while (reader.read(record)) {
+                Move move = moveCodec.read(record, 0);
+                // The moves reaching an objective end the game
+                if ((depth == 0) || (Player.moveStatus(move, level) == Player.MoveStatus.LOOSE)) {
+                    long parentIndex = index;
+                    Player.nextMoves(level, board, move, newMove -> {
+                        if (!deadStates.isDead(newMove, objectives.pending())) {
+                            addToRun(newMove, parentIndex);
+                        }
+                        return false;
+                    });
+                }
+                index += 1;
+            }
+        }
+        if (runRecords > 0) {
+            writeRun();
+        }
+    }
+
+    private void addToRun(@NotNull Move move, long parentIndex) {
+        if ((runRecords + 1) * recordSize > runBuffer.length) {
+            writeRun();
+        }
+        int offset = runRecords * recordSize;
+        moveCodec.write(move, runBuffer, offset);
+        runBuffer[offset + stateSize] = (parentIndex << 8) | Objects.requireNonNull(move.action).ordinal();
+        runRecords += 1;
+    }
+
+    private void writeRun() {
+        int[] order = new int[runRecords];
+        for (int index = 0; index < runRecords; index++) {
+            order[index] = index;
+        }
+        sort(order, 0, runRecords);
+        Path run = directory.resolve("run-" + runs.size());
+        try (RecordFile.Writer writer = new RecordFile.Writer(run, recordSize)) {
+            int previous = -1;
+            for (int record : order) {
+                if ((previous < 0) || (compareStates(runBuffer, previous * recordSize, runBuffer, record * recordSize) != 0)) {
+                    writer.write(runBuffer, record * recordSize);
+                    previous = record;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        runs.add(run);
+        runRecords = 0;
+    }
+
+    /**
+     * Merge the runs with the previous depths into the next depth, keeping the moves not seen before.
+     *
+     * @return the number of moves of the next depth
+     */
+    private long merge(@NotNull Path nextDepth, int depth) throws IOException {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((cursor1, cursor2) -> {
+            int result = compareStates(cursor1.record(), 0, cursor2.record(), 0);
+            return (result != 0) ? result : Integer.compare(cursor1.order(), cursor2.order());
+        });
+        List<RecordFile.Reader> readers = new ArrayList<>();
+        try (RecordFile.Writer writer = new RecordFile.Writer(nextDepth, recordSize)) {
+            // Previous depths first so a move already seen comes first among its copies
+            for (Path path : depths) {
+                openCursor(path, true, cursors, readers);
+            }
+            for (Path path : runs) {
+                openCursor(path, false, cursors, readers);
+            }
+            long[] current = new long[recordSize];
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                boolean seen = cursor.seen();
+                System.arraycopy(cursor.record(), 0, current, 0, recordSize);
+                advance(cursor, cursors);
+                while ((!cursors.isEmpty()) && (compareStates(cursors.peek().record(), 0, current, 0) == 0)) {
+                    advance(cursors.poll(), cursors);
+                }
+                if (!seen) {
+                    writer.write(current, 0);
+                    Move move = moveCodec.read(current, 0);
+                    Player.MoveStatus moveStatus = Player.moveStatus(move, level);
+                    long link = current[stateSize];
+                    if ((moveStatus != Player.MoveStatus.LOOSE) &&
+                            objectives.reach(moveStatus, () -> path(link, depth))) {
+                        return writer.records();
+                    }
+                }
+            }
+            return writer.records();
+        } finally {
+            for (RecordFile.Reader reader : readers) {
+                reader.close();
+            }
+            for (Path run : runs) {
+                Files.delete(run);
+            }
+            runs.clear();
+        }
+    }
+
+    private void openCursor(
+            @NotNull Path path,
+            boolean seen,
+            @NotNull PriorityQueue<Cursor> cursors,
+            @NotNull List<RecordFile.Reader> readers) throws IOException {
+        RecordFile.Reader reader = new RecordFile.Reader(path, recordSize);
+        readers.add(reader);
+        Cursor cursor = new Cursor(reader, new long[recordSize], readers.size(), seen);
+        if (reader.read(cursor.record())) {
+            cursors.add(cursor);
+        }
+    }
+
+    private static void advance(@NotNull Cursor cursor, @NotNull PriorityQueue<Cursor> cursors) throws IOException {
+        if (cursor.reader().read(cursor.record())) {
+            cursors.add(cursor);
+        }
+    }
+
+    /**
+     * Rebuild the actions of a move by following the links to the parents.
+     */
+    private @NotNull List<Action> path(long link, int depth) {
+        Action[] actions = new Action[depth];
+        long currentLink = link;
+        for (int currentDepth = depth; currentDepth > 0; currentDepth--) {
+            actions[currentDepth - 1] = ACTIONS[(int) (currentLink & 0xFF)];
+            long parentIndex = currentLink >>> 8;
+            if (currentDepth > 1) {
+                try (RecordFile.Reader reader = new RecordFile.Reader(depths.get(currentDepth - 1), recordSize)) {
+                    currentLink = reader.readLong(parentIndex, stateSize);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return List.of(actions);
+    }
+
+    private int compareStates(long @NotNull [] records1, int offset1, long @NotNull [] records2, int offset2) {
+        return Arrays.compare(records1, offset1, offset1 + stateSize, records2, offset2, offset2 + stateSize);
+    }
+
+    /**
+     * Quicksort of the records of the run buffer, the equal moves stay in the order they were generated.
+     */
+    private void sort(int @NotNull [] order, int from, int to) {
+        while (to - from > 16) {
+            int pivot = order[(from + to) >>> 1];
+            int low = from;
+            int high = to - 1;
+            while (low <= high) {
+                while (compareRunRecords(order[low], pivot) < 0) {
+                    low += 1;
+                }
+                while (compareRunRecords(order[high], pivot) > 0) {
+                    high -= 1;
+                }
+                if (low <= high) {
+                    int swap = order[low];
+                    order[low] = order[high];
+                    order[high] = swap;
+                    low += 1;
+                    high -= 1;
+                }
+            }
+            // Recurse on the smaller part to bound the stack
+            if ((high - from) < (to - low)) {
+                sort(order, from, high + 1);
+                from = low;
+            } else {
+                sort(order, low, to);
+                to = high + 1;
+            }
+        }
+        for (int index = from + 1; index < to; index++) {
+            int record = order[index];
+            int position = index;
+            while ((position > from) && (compareRunRecords(order[position - 1], record) > 0)) {
+                order[position] = order[position - 1];
+                position -= 1;
+            }
+            order[position] = record;
+        }
+    }
+
+    private int compareRunRecords(int record1, int record2) {
+        int result = compareStates(runBuffer, record1 * recordSize, runBuffer, record2 * recordSize);
+        return (result != 0) ? result : Integer.compare(record1, record2);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d states in %d depths, %d MB on disk",
+                states,
+                depths.size(),
+                diskUsage / (1024 * 1024));
+    }
+}
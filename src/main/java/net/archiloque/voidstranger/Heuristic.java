@@ -0,0 +1,121 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lower bound of the number of actions needed to reach an objective.
+ * Distances are walking distances on the level grid where only the walls count,
+ * an action moving the player by at most one cell, the estimate is consistent.
+ */
+final class Heuristic implements GroundEntity {
+
+    /**
+     * Estimate of a move from which no objective can be reached.
+     */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Objectives that need all the rupees to be found.
+     */
+    private static final Set<Player.MoveStatus> RUPEES_OBJECTIVES = EnumSet.of(Player.MoveStatus.WIN, Player.MoveStatus.RUPEE);
+
+    private final @NotNull Level level;
+    private final int cellsNumber;
+
+    /**
+     * Walking distance between two cells, indexed by {@code from * cellsNumber + to}.
+     */
+    private final int @NotNull [] distances;
+
+    /**
+     * Walking distance from a cell to the closest cell next to each rupee, indexed by {@code rupeeIndex * cellsNumber + cell}.
+     */
+    private final int @NotNull [] rupeesDistances;
+
+    /**
+     * The rupees term is only admissible when all the searched objectives need the rupees.
+     */
+    private final boolean useRupees;
+
+    Heuristic(@NotNull Level level, @NotNull Set<Player.MoveStatus> objectives) {
+        this.level = level;
+        cellsNumber = level.positions().length;
+        distances = computeDistances(level);
+        int[] rupeesIndexes = level.rupeesIndexes();
+        rupeesDistances = new int[rupeesIndexes.length * cellsNumber];
+        for (int rupeeIndex = 0; rupeeIndex < rupeesIndexes.length; rupeeIndex++) {
+            for (int cell = 0; cell < cellsNumber; cell++) {
+                int distance = UNREACHABLE;
+                for (Direction direction : Direction.values()) {
+                    int neighbor = level.neighbor(rupeesIndexes[rupeeIndex], direction);
+                    if (neighbor >= 0) {
+                        distance = Math.min(distance, distances[cell * cellsNumber + neighbor]);
+                    }
+                }
+                rupeesDistances[rupeeIndex * cellsNumber + cell] = distance;
+            }
+        }
+        useRupees = (rupeesIndexes.length > 0) && RUPEES_OBJECTIVES.containsAll(objectives);
+    }
+
+    /**
+     * @return a lower bound of the number of actions before reaching an objective, or {@link #UNREACHABLE}
+     */
+    int estimate(@NotNull MoveView move) {
+        int playerPositionIndex = move.playerPositionIndex();
+        int estimate = UNREACHABLE;
+        // Create the downstair in front then walk on it
+        if (move.playerState() == Move.PlayerState.HOLD_DOWNSTAIR) {
+            estimate = 2;
+        }
+        int distancesOffset = playerPositionIndex * cellsNumber;
+        for (int cell = 0; cell < cellsNumber; cell++) {
+            if (move.groundEntity(cell) == ENTITY_GROUND_DOWNSTAIR) {
+                estimate = Math.min(estimate, distances[distancesOffset + cell]);
+            }
+        }
+        if (useRupees && (estimate != UNREACHABLE)) {
+            int rupeesNumber = level.rupeesIndexes().length;
+            for (int rupeeIndex = 0; rupeeIndex < rupeesNumber; rupeeIndex++) {
+                if (!move.rupeeFound(rupeeIndex)) {
+                    int rupeeDistance = rupeesDistances[rupeeIndex * cellsNumber + playerPositionIndex];
+                    if (rupeeDistance == UNREACHABLE) {
+                        return UNREACHABLE;
+                    }
+                    // Walk next to the rupee then absorb it
+                    estimate = Math.max(estimate, rupeeDistance + 1);
+                }
+            }
+        }
+        return estimate;
+    }
+
+    private static int @NotNull [] computeDistances(@NotNull Level level) {
+        int cellsNumber = level.positions().length;
+        int[] distances = new int[cellsNumber * cellsNumber];
+        Arrays.fill(distances, UNREACHABLE);
+        int[] queue = new int[cellsNumber];
+        for (int from = 0; from < cellsNumber; from++) {
+            int offset = from * cellsNumber;
+            distances[offset + from] = 0;
+            queue[0] = from;
+            int queueStart = 0;
+            int queueEnd = 1;
+            while (queueStart < queueEnd) {
+                int cell = queue[queueStart++];
+                for (Direction direction : Direction.values()) {
+                    int neighbor = level.neighbor(cell, direction);
+                    if ((neighbor >= 0) && (distances[offset + neighbor] == UNREACHABLE)) {
+                        distances[offset + neighbor] = distances[offset + cell] + 1;
+                        queue[queueEnd++] = neighbor;
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+}
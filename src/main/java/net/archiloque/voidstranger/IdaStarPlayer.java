@@ -0,0 +1,134 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Iterative deepening depth-first search: each iteration explores the moves whose number of actions
+ * plus the {@link Heuristic} estimate is below a threshold, the next iteration uses the lowest value above it.
+ * The moves already reached during the iteration are skipped using a {@link TranspositionTable},
+ * so the memory used stays the same whatever the size of the level.
+ * The actions are applied and reverted on a single {@link InPlaceBoard}, which the checks read directly,
+ * so nothing is allocated per move.
+ * The estimate being consistent, an objective first reached during an iteration has a shortest solution.
+ */
+public class IdaStarPlayer {
+
+    private static final Action[] ACTIONS = Action.values();
+
+    /**
+     * 4M entries, 96 MB.
+     */
+    private static final int TABLE_BITS = 22;
+
+    private final @NotNull Level level;
+    private final @NotNull Heuristic heuristic;
+    private final @NotNull TranspositionTable table = new TranspositionTable(TABLE_BITS);
+    private final @NotNull Objectives objectives;
+    private final @NotNull DeadStates deadStates;
+    private final @NotNull InPlaceBoard board;
+    private final long maxStates;
+
+    private int iteration = 0;
+    private int threshold;
+    private int nextThreshold;
+    private long expandedMoves = 0;
+
+    private IdaStarPlayer(@NotNull Preparer.PreparationResult preparationResult, @NotNull Set<Player.MoveStatus> targets, long maxStates) {
+        level = preparationResult.level();
+        objectives = new Objectives(preparationResult, targets);
+        heuristic = new Heuristic(level, objectives.pending());
+        deadStates = new DeadStates(level, preparationResult.move());
+        board = new InPlaceBoard(level, preparationResult.move());
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * @param targets   the objectives to search
+     * @param maxStates the search stops after this number of expanded states, counted over all the iterations
+     */
+    static @NotNull SearchResult play(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Set<Player.MoveStatus> targets,
+            @NotNull PrintStream out,
+            long maxStates) {
+        IdaStarPlayer player = new IdaStarPlayer(preparationResult, targets, maxStates);
+        Move initialMove = preparationResult.move();
+        player.threshold = player.heuristic.estimate(initialMove);
+        while (player.threshold != Heuristic.UNREACHABLE) {
+            player.iteration += 1;
+            player.nextThreshold = Heuristic.UNREACHABLE;
+            player.table.visit(initialMove.hash, initialMove.layersHash, 0, player.iteration);
+            if (player.expand(0)) {
+                out.println(player);
+                if (player.objectives.done()) {
+                    return new SearchResult(player.objectives.outcome(), player.objectives.reached(), player.expandedMoves);
+                }
+                out.println(" ### Aborted !");
+                return new SearchResult(SearchResult.Outcome.ABORTED, player.objectives.reached(), player.expandedMoves);
+            }
+            player.threshold = player.nextThreshold;
+        }
+        out.println(player);
+        out.println(" ### Fail !");
+        return new SearchResult(SearchResult.Outcome.FAIL, player.objectives.reached(), player.expandedMoves);
+    }
+
+    /**
+     * @return true if the search is over
+     */
+    private boolean expand(int actions) {
+        expandedMoves += 1;
+        if (expandedMoves >= maxStates) {
+            return true;
+        }
+        for (Action action : ACTIONS) {
+            if (board.make(action)) {
+                boolean over = reach(actions + 1);
+                board.unmake();
+                if (over) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the search is over
+     */
+    private boolean reach(int actions) {
+        if (deadStates.isDead(board, objectives.pending())) {
+            return false;
+        }
+        Player.MoveStatus moveStatus = Player.moveStatus(board, level);
+        int estimate = (moveStatus == Player.MoveStatus.LOOSE) ? heuristic.estimate(board) : 0;
+        if (estimate == Heuristic.UNREACHABLE) {
+            return false;
+        }
+        int priority = actions + estimate;
+        if (priority > threshold) {
+            nextThreshold = Math.min(nextThreshold, priority);
+            return false;
+        }
+        if (moveStatus != Player.MoveStatus.LOOSE) {
+            return objectives.reach(moveStatus, board::actions);
+        }
+        if (!table.visit(board.hash(), board.layersHash(), actions, iteration)) {
+            return false;
+        }
+        return expand(actions);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d states expanded in %d iterations, table of %d MB",
+                expandedMoves,
+                iteration,
+                table.memoryUsage() / (1024 * 1024));
+    }
+}
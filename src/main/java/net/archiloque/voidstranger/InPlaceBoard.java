@@ -0,0 +1,548 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Board on which the actions are applied in place, following the same rules as {@link Player}.
+ * The cells changed by each action are recorded in an undo log so the actions can be reverted in reverse order,
+ * the enemies appearing or disappearing being reverted with the cells of the up layer,
+ * so nothing is allocated per action.
+ */
+final class InPlaceBoard implements GroundEntity, UpEntity, MoveView {
+
+    private static final int GROUND_LAYER = 0;
+    private static final int UP_LAYER = 1;
+
+    private final @NotNull Level level;
+    private final @NotNull Zobrist zobrist;
+
+    private final long @NotNull [] groundLayer;
+    private final long @NotNull [] upLayer;
+
+    /**
+     * Sorted indexes of the cells of the up layer holding an enemy, in the first {@link #enemiesNumber} elements.
+     */
+    private final int @NotNull [] enemies;
+    private int enemiesNumber;
+    private long layersHash;
+    private int playerPositionIndex;
+    private @NotNull Direction playerDirection;
+    private @NotNull Move.PlayerState playerState;
+    private long rupeesFound;
+
+    /**
+     * The enemies at the start of the current action, as the enemies move in the order of their initial cells.
+     */
+    private final int @NotNull [] initialEnemies;
+    private int initialEnemiesNumber;
+    private final char @NotNull [] initialEnemiesEntities;
+
+    /**
+     * For each changed cell: its index, its layer and its previous code.
+     */
+    private long @NotNull [] undoLog = new long[256];
+    private int undoSize = 0;
+
+    /**
+     * For each applied action: the size of the undo log and the state before it.
+     */
+    private int depth = 0;
+    private @NotNull Action @NotNull [] frameActions = new Action[64];
+    private int @NotNull [] frameUndoSizes = new int[64];
+    private long @NotNull [] frameLayersHashes = new long[64];
+    private int @NotNull [] framePlayerPositions = new int[64];
+    private @NotNull Direction @NotNull [] framePlayerDirections = new Direction[64];
+    private Move.PlayerState @NotNull [] framePlayerStates = new Move.PlayerState[64];
+    private long @NotNull [] frameRupeesFound = new long[64];
+
+    InPlaceBoard(@NotNull Level level, @NotNull Move move) {
+        this.level = level;
+        this.zobrist = level.zobrist();
+        groundLayer = move.groundLayer.clone();
+        upLayer = move.upLayer.clone();
+        enemies = Arrays.copyOf(move.enemies, level.positions().length);
+        enemiesNumber = move.enemies.length;
+        layersHash = move.layersHash;
+        playerPositionIndex = move.playerPositionIndex;
+        playerDirection = move.playerDirection;
+        playerState = move.playerState;
+        rupeesFound = move.rupeesFound;
+        initialEnemies = new int[level.positions().length];
+        initialEnemiesEntities = new char[level.positions().length];
+    }
+
+    /**
+     * @return a move using the layers of the board, only valid until the next action is applied or reverted
+     */
+    @NotNull Move toMove() {
+        return new Move(
+                playerPositionIndex,
+                playerDirection,
+                playerState,
+                groundLayer,
+                upLayer,
+                Arrays.copyOf(enemies, enemiesNumber),
+                rupeesFound,
+                layersHash,
+                hash(),
+                lastAction(),
+                PathStore.NO_PATH);
+    }
+
+    /**
+     * @return the Zobrist hash of the move of the board
+     */
+    long hash() {
+        return zobrist.moveHash(layersHash, playerPositionIndex, playerDirection, playerState, rupeesFound);
+    }
+
+    /**
+     * @return the Zobrist hash of the layers of the board
+     */
+    long layersHash() {
+        return layersHash;
+    }
+
+    @Override
+    public int playerPositionIndex() {
+        return playerPositionIndex;
+    }
+
+    @Override
+    public @NotNull Move.PlayerState playerState() {
+        return playerState;
+    }
+
+    @Override
+    public boolean rupeeFound(int rupeeIndex) {
+        return (rupeesFound & (1L << rupeeIndex)) != 0;
+    }
+
+    /**
+     * @return the last action applied and not reverted, null if there is none
+     */
+    @Nullable Action lastAction() {
+        return (depth == 0) ? null : frameActions[depth - 1];
+    }
+
+    /**
+     * @return the actions applied and not reverted
+     */
+    @NotNull List<Action> actions() {
+        return List.of(Arrays.copyOf(frameActions, depth));
+    }
+
+    /**
+     * Apply an action.
+     *
+     * @return false if the action is not possible or makes the player loose, the board being left unchanged
+     */
+    boolean make(@NotNull Action action) {
+        pushFrame(action);
+        boolean possible = switch (action) {
+            case UP -> move(Direction.Up);
+            case DOWN -> move(Direction.Down);
+            case LEFT -> move(Direction.Left);
+            case RIGHT -> move(Direction.Right);
+            case ABSORB_GROUND, CREATE_GROUND, OPEN_CHEST -> action(action);
+        };
+        if (!possible) {
+            unmake();
+        }
+        return possible;
+    }
+
+    /**
+     * Revert the last action applied.
+     */
+    void unmake() {
+        if (depth == 0) {
+            throw new IllegalStateException("No action to revert");
+        }
+        depth -= 1;
+        int frameUndoSize = frameUndoSizes[depth];
+        while (undoSize > frameUndoSize) {
+            long entry = undoLog[--undoSize];
+            int index = (int) (entry >>> 8);
+            int code = (int) (entry & 0xF);
+            if (((entry >>> 4) & 1) == GROUND_LAYER) {
+                Layers.setGroundCode(groundLayer, index, code);
+            } else {
+                updateEnemies(index, Layers.upCode(upLayer, index), code);
+                Layers.setUpCode(upLayer, index, code);
+            }
+        }
+        layersHash = frameLayersHashes[depth];
+        playerPositionIndex = framePlayerPositions[depth];
+        playerDirection = framePlayerDirections[depth];
+        playerState = framePlayerStates[depth];
+        rupeesFound = frameRupeesFound[depth];
+    }
+
+    private void pushFrame(@NotNull Action action) {
+        if (depth == frameActions.length) {
+            int newLength = depth * 2;
+            frameActions = Arrays.copyOf(frameActions, newLength);
+            frameUndoSizes = Arrays.copyOf(frameUndoSizes, newLength);
+            frameLayersHashes = Arrays.copyOf(frameLayersHashes, newLength);
+            framePlayerPositions = Arrays.copyOf(framePlayerPositions, newLength);
+            framePlayerDirections = Arrays.copyOf(framePlayerDirections, newLength);
+            framePlayerStates = Arrays.copyOf(framePlayerStates, newLength);
+            frameRupeesFound = Arrays.copyOf(frameRupeesFound, newLength);
+        }
+        frameActions[depth] = action;
+        frameUndoSizes[depth] = undoSize;
+        frameLayersHashes[depth] = layersHash;
+        framePlayerPositions[depth] = playerPositionIndex;
+        framePlayerDirections[depth] = playerDirection;
+        framePlayerStates[depth] = playerState;
+        frameRupeesFound[depth] = rupeesFound;
+        depth += 1;
+        System.arraycopy(enemies, 0, initialEnemies, 0, enemiesNumber);
+        initialEnemiesNumber = enemiesNumber;
+        for (int enemyIndex = 0; enemyIndex < enemiesNumber; enemyIndex++) {
+            initialEnemiesEntities[enemies[enemyIndex]] = upEntity(enemies[enemyIndex]);
+        }
+    }
+
+    @Override
+    public char groundEntity(int index) {
+        return Layers.groundEntity(groundLayer, index);
+    }
+
+    private void setGroundEntity(int index, char groundEntity) {
+        int oldCode = Layers.groundCode(groundLayer, index);
+        int newCode = Layers.groundCode(groundEntity);
+        if (oldCode != newCode) {
+            log(index, GROUND_LAYER, oldCode);
+            Layers.setGroundCode(groundLayer, index, newCode);
+            layersHash ^= zobrist.groundKey(index, oldCode) ^ zobrist.groundKey(index, newCode);
+        }
+    }
+
+    @Override
+    public char upEntity(int index) {
+        return Layers.upEntity(upLayer, index);
+    }
+
+    private void setUpEntity(int index, char upEntity) {
+        int oldCode = Layers.upCode(upLayer, index);
+        int newCode = Layers.upCode(upEntity);
+        if (oldCode != newCode) {
+            log(index, UP_LAYER, oldCode);
+            Layers.setUpCode(upLayer, index, newCode);
+            layersHash ^= zobrist.upKey(index, oldCode) ^ zobrist.upKey(index, newCode);
+            updateEnemies(index, oldCode, newCode);
+        }
+    }
+
+    /**
+     * Add or remove the cell from the enemies if an enemy appears or disappears.
+     */
+    private void updateEnemies(int index, int oldCode, int newCode) {
+        if (Layers.isEnemyCode(oldCode) != Layers.isEnemyCode(newCode)) {
+            enemiesNumber = Layers.updateEnemies(enemies, enemiesNumber, index, Layers.isEnemyCode(newCode));
+        }
+    }
+
+    private void log(int index, int layer, int oldCode) {
+        if (undoSize == undoLog.length) {
+            undoLog = Arrays.copyOf(undoLog, undoSize * 2);
+        }
+        undoLog[undoSize++] = (((long) index) << 8) | (layer << 4) | oldCode;
+    }
+
+    /**
+     * Turn the player if no enemy reached it.
+     */
+    private boolean turn(@NotNull Direction direction) {
+        if (UpEntity.isEnemy(upEntity(playerPositionIndex))) {
+            return false;
+        }
+        playerDirection = direction;
+        return true;
+    }
+
+    private boolean move(@NotNull Direction direction) {
+        int targetPositionIndex = level.neighbor(playerPositionIndex, direction);
+        if (targetPositionIndex < 0) {
+            // Moving toward a wall: just change your direction
+            postMove(playerPositionIndex, -1);
+            return turn(direction);
+        }
+        char targetUpEntity = upEntity(targetPositionIndex);
+        switch (targetUpEntity) {
+            case ENTITY_UP_BOULDER -> {
+                return moveBoulder(direction, targetPositionIndex);
+            }
+            case ENTITY_UP_CHEST_OPEN, ENTITY_UP_CHEST_CLOSED -> {
+                postMove(playerPositionIndex, -1);
+                return turn(direction);
+            }
+            case ENTITY_UP_ENEMY_BASIC_FACING_UP, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
+                return false;
+            }
+        }
+        char targetGroundEntity = groundEntity(targetPositionIndex);
+        switch (targetGroundEntity) {
+            case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
+                postMove(targetPositionIndex, -1);
+                if (UpEntity.isEnemy(upEntity(targetPositionIndex)) || UpEntity.isEnemy(targetUpEntity)) {
+                    return false;
+                }
+                playerPositionIndex = targetPositionIndex;
+                playerDirection = direction;
+                return true;
+            }
+            case ENTITY_GROUND_HOLE -> {
+                return false;
+            }
+        }
+        throw new IllegalStateException("Unexpected value: [" + targetUpEntity + "] [" + targetGroundEntity + "]");
+    }
+
+    private boolean moveBoulder(@NotNull Direction direction, int targetPositionIndex) {
+        int beyondPositionIndex = level.neighbor(targetPositionIndex, direction);
+        if (beyondPositionIndex > 0) {
+            char beyondPositionUpEntity = upEntity(beyondPositionIndex);
+            switch (beyondPositionUpEntity) {
+                case ENTITY_UP_BOULDER, ENTITY_UP_CHEST_OPEN, ENTITY_UP_CHEST_CLOSED -> {
+                    postMove(playerPositionIndex, beyondPositionIndex);
+                    return turn(direction);
+                }
+                case ENTITY_UP_ENEMY_BASIC_FACING_UP, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
+                    setUpEntity(targetPositionIndex, ENTITY_UP_EMPTY);
+                    setUpEntity(beyondPositionIndex, ENTITY_UP_BOULDER);
+                    postMove(targetPositionIndex, beyondPositionIndex);
+                    return turn(direction);
+                }
+            }
+            boolean glassUnderBoulder = groundEntity(targetPositionIndex) == ENTITY_GROUND_GLASS;
+            char beyondPositionGroundEntity = groundEntity(beyondPositionIndex);
+            switch (beyondPositionGroundEntity) {
+                case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
+                    setUpEntity(targetPositionIndex, ENTITY_UP_EMPTY);
+                    setUpEntity(beyondPositionIndex, ENTITY_UP_BOULDER);
+                    postMove(targetPositionIndex, beyondPositionIndex);
+                }
+                case ENTITY_GROUND_HOLE -> {
+                    setUpEntity(targetPositionIndex, ENTITY_UP_EMPTY);
+                    postMove(targetPositionIndex, -1);
+                }
+                default -> {
+                    return false;
+                }
+            }
+            if (!turn(direction)) {
+                return false;
+            }
+            if (glassUnderBoulder) {
+                setGroundEntity(targetPositionIndex, ENTITY_GROUND_HOLE);
+            }
+            return true;
+        } else {
+            postMove(playerPositionIndex, beyondPositionIndex);
+            return turn(direction);
+        }
+    }
+
+    private boolean action(@NotNull Action action) {
+        int targetPositionIndex = level.neighbor(playerPositionIndex, playerDirection);
+        if (targetPositionIndex < 0) {
+            return false;
+        }
+
+        char upTargetEntity = upEntity(targetPositionIndex);
+        switch (upTargetEntity) {
+            case ENTITY_UP_BOULDER, ENTITY_UP_CHEST_OPEN, ENTITY_UP_ENEMY_BASIC_FACING_UP, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
+                return false;
+            }
+            case ENTITY_UP_CHEST_CLOSED -> {
+                return (action == Action.OPEN_CHEST) && actionChestClosed(targetPositionIndex);
+            }
+        }
+
+        char groundTargetEntity = groundEntity(targetPositionIndex);
+        switch (groundTargetEntity) {
+            case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
+                return (action == Action.ABSORB_GROUND) && actionAbsorbGround(targetPositionIndex);
+            }
+            case ENTITY_GROUND_HOLE -> {
+                return (action == Action.CREATE_GROUND) && actionCreateGround(targetPositionIndex);
+            }
+        }
+        throw new IllegalStateException("Unexpected value: [" + upTargetEntity + "] [" + groundTargetEntity + "]");
+    }
+
+    private boolean actionCreateGround(int targetPositionIndex) {
+        if (playerState == Move.PlayerState.EMPTY) {
+            return false;
+        }
+        setGroundEntity(targetPositionIndex, playerState.entity);
+        postMove(playerPositionIndex, -1);
+        if (UpEntity.isEnemy(upEntity(playerPositionIndex))) {
+            return false;
+        }
+        playerState = Move.PlayerState.EMPTY;
+        return true;
+    }
+
+    private boolean actionAbsorbGround(int targetPositionIndex) {
+        if (playerState != Move.PlayerState.EMPTY) {
+            return false;
+        }
+        Move.PlayerState newPlayerState = Move.fromGroundEntity(groundEntity(targetPositionIndex));
+        setGroundEntity(targetPositionIndex, ENTITY_GROUND_HOLE);
+        postMove(playerPositionIndex, -1);
+        if (UpEntity.isEnemy(upEntity(playerPositionIndex))) {
+            return false;
+        }
+        int rupeeIndex = Arrays.binarySearch(level.rupeesIndexes(), targetPositionIndex);
+        if (rupeeIndex >= 0) {
+            rupeesFound |= 1L << rupeeIndex;
+        }
+        playerState = newPlayerState;
+        return true;
+    }
+
+    private boolean actionChestClosed(int targetPositionIndex) {
+        if (playerDirection != Direction.Up) {
+            return false;
+        }
+        setUpEntity(targetPositionIndex, ENTITY_UP_CHEST_OPEN);
+        return !UpEntity.isEnemy(upEntity(playerPositionIndex));
+    }
+
+    /**
+     * Called before the player position is updated.
+     */
+    private void postMove(int newPlayerPositionIndex, int crushedEnemyIndex) {
+        // The cells are updated in index order, the glass under the player breaking when its cell is reached
+        boolean breakGlass = groundEntity(playerPositionIndex) == ENTITY_GROUND_GLASS;
+        for (int initialEnemyIndex = 0; initialEnemyIndex < initialEnemiesNumber; initialEnemyIndex++) {
+            int currentEntityIndex = initialEnemies[initialEnemyIndex];
+            if (breakGlass && (currentEntityIndex > playerPositionIndex)) {
+                setGroundEntity(playerPositionIndex, ENTITY_GROUND_HOLE);
+                breakGlass = false;
+            }
+            char currentUpEntity = initialEnemiesEntities[currentEntityIndex];
+            switch (currentUpEntity) {
+                case ENTITY_UP_ENEMY_BASIC_FACING_DOWN -> {
+                    if (currentEntityIndex != crushedEnemyIndex) {
+                        postMoveBasicEnemy(
+                                currentEntityIndex,
+                                Direction.Down,
+                                ENTITY_UP_ENEMY_BASIC_FACING_DOWN,
+                                ENTITY_UP_ENEMY_BASIC_FACING_UP);
+                    }
+                }
+                case ENTITY_UP_ENEMY_BASIC_FACING_LEFT -> {
+                    if (currentEntityIndex != crushedEnemyIndex) {
+                        postMoveBasicEnemy(
+                                currentEntityIndex,
+                                Direction.Left,
+                                ENTITY_UP_ENEMY_BASIC_FACING_LEFT,
+                                ENTITY_UP_ENEMY_BASIC_FACING_RIGHT);
+                    }
+                }
+                case ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
+                    if (currentEntityIndex != crushedEnemyIndex) {
+                        postMoveBasicEnemy(
+                                currentEntityIndex,
+                                Direction.Right,
+                                ENTITY_UP_ENEMY_BASIC_FACING_RIGHT,
+                                ENTITY_UP_ENEMY_BASIC_FACING_LEFT);
+                    }
+                }
+                case ENTITY_UP_ENEMY_BASIC_FACING_UP -> {
+                    if (currentEntityIndex != crushedEnemyIndex) {
+                        postMoveBasicEnemy(
+                                currentEntityIndex,
+                                Direction.Up,
+                                ENTITY_UP_ENEMY_BASIC_FACING_UP,
+                                ENTITY_UP_ENEMY_BASIC_FACING_DOWN);
+                    }
+                }
+                case ENTITY_UP_ENEMY_SEEKER -> postMoveSeekerEnemy(newPlayerPositionIndex, currentEntityIndex);
+            }
+        }
+        if (breakGlass) {
+            setGroundEntity(playerPositionIndex, ENTITY_GROUND_HOLE);
+        }
+    }
+
+    private void postMoveSeekerEnemy(int newPlayerPositionIndex, int currentEntityIndex) {
+        // Is the played in the same line or column than the enemy
+        Position playerPosition = level.positions()[newPlayerPositionIndex];
+        Position enemyPosition = level.positions()[currentEntityIndex];
+        Direction direction;
+        if (playerPosition.line() == enemyPosition.line()) {
+            direction = (playerPosition.column() > enemyPosition.column()) ? Direction.Right : Direction.Left;
+        } else if (playerPosition.column() == enemyPosition.column()) {
+            direction = (playerPosition.line() > enemyPosition.line()) ? Direction.Down : Direction.Up;
+        } else {
+            return;
+        }
+
+        // Check if the player is visible
+        int currentlyCheckedPositionIndex = level.neighbor(currentEntityIndex, direction);
+        while (currentlyCheckedPositionIndex != newPlayerPositionIndex) {
+            if (currentlyCheckedPositionIndex < 0) {
+                return;
+            }
+            if (upEntity(currentlyCheckedPositionIndex) != ENTITY_UP_EMPTY) {
+                return;
+            }
+            currentlyCheckedPositionIndex = level.neighbor(currentlyCheckedPositionIndex, direction);
+        }
+
+        // Move the enemy
+        int targetEntityIndex = level.neighbor(currentEntityIndex, direction);
+        char currentGroundEntity = groundEntity(targetEntityIndex);
+        switch (currentGroundEntity) {
+            case ENTITY_GROUND_HOLE -> setUpEntity(currentEntityIndex, ENTITY_UP_EMPTY);
+            case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
+                setUpEntity(currentEntityIndex, ENTITY_UP_EMPTY);
+                setUpEntity(targetEntityIndex, ENTITY_UP_ENEMY_SEEKER);
+            }
+            default -> throw new IllegalStateException("Unexpected value: [" + currentGroundEntity + "]");
+        }
+        if (groundEntity(currentEntityIndex) == ENTITY_GROUND_GLASS) {
+            setGroundEntity(currentEntityIndex, ENTITY_GROUND_HOLE);
+        }
+    }
+
+    private void postMoveBasicEnemy(
+            int currentEntityIndex,
+            @NotNull Direction direction,
+            char currentEntity,
+            char oppositeEnemy) {
+        int targetPositionIndex = level.neighbor(currentEntityIndex, direction);
+        if (targetPositionIndex < 0) {
+            setUpEntity(currentEntityIndex, oppositeEnemy);
+        } else {
+            char targetUpEntity = upEntity(targetPositionIndex);
+            switch (targetUpEntity) {
+                case ENTITY_UP_BOULDER, ENTITY_UP_CHEST_CLOSED, ENTITY_UP_CHEST_OPEN, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT, ENTITY_UP_ENEMY_BASIC_FACING_UP -> {
+                    setUpEntity(currentEntityIndex, oppositeEnemy);
+                    return;
+                }
+            }
+            char targetGroundEntity = groundEntity(targetPositionIndex);
+            switch (targetGroundEntity) {
+                case ENTITY_GROUND_HOLE -> setUpEntity(currentEntityIndex, oppositeEnemy);
+                case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
+                    setUpEntity(currentEntityIndex, ENTITY_UP_EMPTY);
+                    setUpEntity(targetPositionIndex, currentEntity);
+                    if (groundEntity(currentEntityIndex) == ENTITY_GROUND_GLASS) {
+                        setGroundEntity(currentEntityIndex, ENTITY_GROUND_HOLE);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Packed storage for the two layers of a level.
+ * Ground entities use 2 bits per cell (32 cells per long),
+ * up entities use 4 bits per cell (16 cells per long).
+ */
+final class Layers implements GroundEntity, UpEntity {
+
+    private static final char[] GROUND_ENTITIES = {
+            ENTITY_GROUND_GROUND,
+            ENTITY_GROUND_HOLE,
+            ENTITY_GROUND_GLASS,
+            ENTITY_GROUND_DOWNSTAIR,
+    };
+
+    private static final char[] UP_ENTITIES = {
+            ENTITY_UP_EMPTY,
+            ENTITY_UP_BOULDER,
+            ENTITY_UP_CHEST_CLOSED,
+            ENTITY_UP_CHEST_OPEN,
+            ENTITY_UP_ENEMY_BASIC_FACING_DOWN,
+            ENTITY_UP_ENEMY_BASIC_FACING_LEFT,
+            ENTITY_UP_ENEMY_BASIC_FACING_RIGHT,
+            ENTITY_UP_ENEMY_BASIC_FACING_UP,
+            ENTITY_UP_ENEMY_SEEKER,
+    };
+
+    static final int GROUND_CODES = GROUND_ENTITIES.length;
+
+    static final int UP_CODES = UP_ENTITIES.length;
+
+    private Layers() {
+    }
+
+    static long @NotNull [] newGroundLayer(int size) {
+        return new long[(size + 31) >>> 5];
+    }
+
+    static long @NotNull [] newUpLayer(int size) {
+        return new long[(size + 15) >>> 4];
+    }
+
+    static char groundEntity(long @NotNull [] groundLayer, int index) {
+        return GROUND_ENTITIES[groundCode(groundLayer, index)];
+    }
+
+    static void setGroundEntity(long @NotNull [] groundLayer, int index, char groundEntity) {
+        setGroundCode(groundLayer, index, groundCode(groundEntity));
+    }
+
+    static int groundCode(long @NotNull [] groundLayer, int index) {
+        return (int) (groundLayer[index >>> 5] >>> ((index & 31) << 1)) & 0b11;
+    }
+
+    static void setGroundCode(long @NotNull [] groundLayer, int index, int groundCode) {
+        int shift = (index & 31) << 1;
+        int word = index >>> 5;
+        groundLayer[word] = (groundLayer[word] & ~(0b11L << shift)) | (((long) groundCode) << shift);
+    }
+
+    static char upEntity(long @NotNull [] upLayer, int index) {
+        return UP_ENTITIES[upCode(upLayer, index)];
+    }
+
+    static void setUpEntity(long @NotNull [] upLayer, int index, char upEntity) {
+        setUpCode(upLayer, index, upCode(upEntity));
+    }
+
+    static int upCode(long @NotNull [] upLayer, int index) {
+        return (int) (upLayer[index >>> 4] >>> ((index & 15) << 2)) & 0b1111;
+    }
+
+    static void setUpCode(long @NotNull [] upLayer, int index, int upCode) {
+        int shift = (index & 15) << 2;
+        int word = index >>> 4;
+        upLayer[word] = (upLayer[word] & ~(0b1111L << shift)) | (((long) upCode) << shift);
+    }
+
+    /**
+     * The up codes from 4 to 8 are the enemies.
+     */
+    static boolean isEnemyCode(int upCode) {
+        return upCode >= 4;
+    }
+
+    /**
+     * @return the sorted indexes of the cells holding an enemy
+     */
+    static int @NotNull [] enemies(long @NotNull [] upLayer, int size) {
+        int enemiesNumber = 0;
+        int[] enemies = new int[size];
+        for (int index = 0; index < size; index++) {
+            if (isEnemyCode(upCode(upLayer, index))) {
+                enemies[enemiesNumber++] = index;
+            }
+        }
+        return Arrays.copyOf(enemies, enemiesNumber);
+    }
+
+    /**
+     * Add or remove an enemy in place from the sorted indexes in the first elements of an array large enough for all the cells.
+     *
+     * @return the new number of enemies
+     */
+    static int updateEnemies(int @NotNull [] enemies, int enemiesNumber, int index, boolean enemy) {
+        int enemyIndex = Arrays.binarySearch(enemies, 0, enemiesNumber, index);
+        if (enemy) {
+            int insertionIndex = -(enemyIndex + 1);
+            System.arraycopy(enemies, insertionIndex, enemies, insertionIndex + 1, enemiesNumber - insertionIndex);
+            enemies[insertionIndex] = index;
+            return enemiesNumber + 1;
+        } else {
+            System.arraycopy(enemies, enemyIndex + 1, enemies, enemyIndex, enemiesNumber - enemyIndex - 1);
+            return enemiesNumber - 1;
+        }
+    }
+
+    static int groundCode(char groundEntity) {
+        switch (groundEntity) {
+            case ENTITY_GROUND_GROUND -> {
+                return 0;
+            }
+            case ENTITY_GROUND_HOLE -> {
+                return 1;
+            }
+            case ENTITY_GROUND_GLASS -> {
+                return 2;
+            }
+            case ENTITY_GROUND_DOWNSTAIR -> {
+                return 3;
+            }
+            default -> throw new IllegalArgumentException("Unexpected value: [" + groundEntity + "]");
+        }
+    }
+
+    static int upCode(char upEntity) {
+        switch (upEntity) {
+            case ENTITY_UP_EMPTY -> {
+                return 0;
+            }
+            case ENTITY_UP_BOULDER -> {
+                return 1;
+            }
+            case ENTITY_UP_CHEST_CLOSED -> {
+                return 2;
+            }
+            case ENTITY_UP_CHEST_OPEN -> {
+                return 3;
+            }
+            case ENTITY_UP_ENEMY_BASIC_FACING_DOWN -> {
+                return 4;
+            }
+            case ENTITY_UP_ENEMY_BASIC_FACING_LEFT -> {
+                return 5;
+            }
+            case ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
+                return 6;
+            }
+            case ENTITY_UP_ENEMY_BASIC_FACING_UP -> {
+                return 7;
+            }
+            case ENTITY_UP_ENEMY_SEEKER -> {
+                return 8;
+            }
+            default -> throw new IllegalArgumentException("Unexpected value: [" + upEntity + "]");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Intern pool of the layers kept by a search, so the moves with identical layers reached by different paths
+ * share a single array.
+ * The pooled arrays are never modified.
+ * The table uses open addressing with linear probing, like {@link VisitedStates}.
+ * The pool only helps while the moves using its layers are alive, so the searches clear it when their moves are expanded,
+ * and it is cleared when it reaches {@link #MAX_SIZE} layers for the searches that can't.
+ */
+final class LayersPool {
+
+    private static final int INITIAL_CAPACITY = 1 << 8;
+    private static final double MAX_LOAD_FACTOR = 0.5;
+    private static final int MAX_SIZE = 1 << 20;
+
+    private long @NotNull [] @NotNull [] table = new long[INITIAL_CAPACITY][];
+    private int size = 0;
+
+    /**
+     * @return the pooled array equal to the layer, a copy of the layer being added if there is none
+     */
+    long @NotNull [] intern(long @NotNull [] layer) {
+        if (size >= MAX_SIZE) {
+            clear();
+        } else if (size >= table.length * MAX_LOAD_FACTOR) {
+            resize();
+        }
+        int mask = table.length - 1;
+        int slot = hash(layer) & mask;
+        while (true) {
+            long[] pooled = table[slot];
+            if (pooled == null) {
+                long[] copy = layer.clone();
+                table[slot] = copy;
+                size += 1;
+                return copy;
+            }
+            if ((pooled == layer) || Arrays.equals(pooled, layer)) {
+                return pooled;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Forget the pooled layers, the arrays already returned stay valid.
+     */
+    void clear() {
+        Arrays.fill(table, null);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int hash(long @NotNull [] layer) {
+        int hash = Arrays.hashCode(layer);
+        return hash ^ (hash >>> 16);
+    }
+
+    private void resize() {
+        long[][] newTable = new long[table.length * 2][];
+        int mask = newTable.length - 1;
+        for (long[] pooled : table) {
+            if (pooled != null) {
+                int slot = hash(pooled) & mask;
+                while (newTable[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[slot] = pooled;
+            }
+        }
+        table = newTable;
+    }
+}
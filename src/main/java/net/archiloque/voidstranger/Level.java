@@ -10,10 +10,28 @@ public record Level(
         int height,
         @NotNull Position[] positions,
         int @NotNull [] rupeesIndexes,
-        boolean hasChest) {
+        boolean hasChest,
+        @NotNull Zobrist zobrist,
+        int @NotNull [] neighbors,
+        int @NotNull [] chestsIndexes,
+        int @NotNull [] frozenBoulderCells) {
 
     public int positionIndex(@NotNull Position position) {
         return Arrays.binarySearch(positions, position);
     }
 
+    /**
+     * @return the index of the neighbor cell in this direction, or -1 if it is a wall
+     */
+    public int neighbor(int index, @NotNull Direction direction) {
+        return neighbors[(index << 2) + direction.ordinal()];
+    }
+
+    /**
+     * @return true if a boulder on this cell can never be pushed
+     */
+    public boolean frozenBoulderCell(int index) {
+        return Arrays.binarySearch(frozenBoulderCells, index) >= 0;
+    }
+
 }
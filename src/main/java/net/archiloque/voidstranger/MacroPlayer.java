@@ -0,0 +1,258 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Breadth-first search with macro moves, for the levels without enemy where walking doesn't change the board.
+ * Only the moves changing the board or ending the level are stored: from each of them a flood fill finds
+ * the cells and facings the player can walk to, and each move generated from one of them is a single successor
+ * "walk there then do the action", costing the steps of the walk plus one.
+ * The moves are expanded by increasing number of steps, so an objective first reached has a shortest solution,
+ * and the walks are expanded back into steps when a solution is rebuilt.
+ * A move can be generated again with fewer steps before being expanded, so the moves are marked as known when expanded,
+ * the lowest number of steps of the moves waiting to be expanded being kept to skip most of the duplicates.
+ */
+final class MacroPlayer implements GroundEntity {
+
+    /**
+     * Walk of a macro action that starts with its action.
+     */
+    static final int NO_WALK = -1;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * A walk to a cell and facing, encoded by {@link #node}, followed by an action.
+     */
+    record MacroAction(int walk, @NotNull Action action) {
+    }
+
+    /**
+     * A move to expand and the walk leading to it.
+     */
+    private record Entry(@NotNull Move move, int walk) {
+    }
+
+    /**
+     * Receive the moves changing the board generated during a walk.
+     */
+    @FunctionalInterface
+    private interface WalkCallback {
+
+        /**
+         * @param move  only valid during the call, like for {@link Player.MoveCallback}
+         * @param walk  the walk before the action of the move
+         * @param steps the number of steps of the walk plus the action
+         * @return true to stop the walk
+         */
+        boolean accept(@NotNull Move move, int walk, int steps);
+    }
+
+    private final @NotNull Level level;
+    private final @NotNull Board board;
+    private final @NotNull ArrayDeque<Move> walkMoves = new ArrayDeque<>();
+
+    /**
+     * Per walk node, the number of the walk that reached it, its parent node, the step leading to it and its distance.
+     */
+    private final int @NotNull [] visited;
+    private final int @NotNull [] parents;
+    private final @NotNull Action @NotNull [] steps;
+    private final int @NotNull [] distances;
+    private int walkNumber = 0;
+
+    private MacroPlayer(@NotNull Level level) {
+        this.level = level;
+        board = new Board(level);
+        int nodesNumber = level.positions().length * DIRECTIONS.length;
+        visited = new int[nodesNumber];
+        parents = new int[nodesNumber];
+        steps = new Action[nodesNumber];
+        distances = new int[nodesNumber];
+    }
+
+    /**
+     * @return true if walking never changes the board of the level
+     */
+    static boolean applies(@NotNull Preparer.PreparationResult preparationResult) {
+        return preparationResult.move().enemies.length == 0;
+    }
+
+    /**
+     * @param targets   the objectives to search
+     * @param maxStates the search stops after this number of states
+     */
+    static @NotNull SearchResult play(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Set<Player.MoveStatus> targets,
+            @NotNull PrintStream out,
+            long maxStates) {
+        Level level = preparationResult.level();
+        MacroPlayer player = new MacroPlayer(level);
+        DominanceVisitedStates knownMoves = new DominanceVisitedStates(level);
+        Objectives objectives = new Objectives(preparationResult, targets);
+        PathStore paths = new PathStore();
+        DeadStates deadStates = new DeadStates(level, preparationResult.move());
+
+        // The moves to expand indexed by number of steps
+        List<ArrayDeque<Entry>> entries = new ArrayList<>();
+        Map<Move, Integer> entriesDepths = new HashMap<>();
+        entries.add(new ArrayDeque<>());
+        entries.getFirst().add(new Entry(preparationResult.move(), NO_WALK));
+
+        for (int depth = 0; depth < entries.size(); depth++) {
+            ArrayDeque<Entry> depthEntries = entries.get(depth);
+            while (!depthEntries.isEmpty()) {
+                Entry entry = depthEntries.removeFirst();
+                Move move = entry.move();
+                entriesDepths.remove(move, depth);
+                if (!knownMoves.add(move, objectives.pending())) {
+                    continue;
+                }
+                Player.MoveStatus moveStatus = Player.moveStatus(move, level);
+                if (moveStatus != Player.MoveStatus.LOOSE) {
+                    if (objectives.reach(moveStatus, () -> player.actions(preparationResult, paths.macroActions(move, entry.walk())))) {
+                        out.println(knownMoves);
+                        return new SearchResult(objectives.outcome(), objectives.reached(), knownMoves.size());
+                    }
+                } else {
+                    if (move.action != null) {
+                        paths.add(move, entry.walk());
+                    }
+                    int moveDepth = depth;
+                    player.walk(move, (newMove, walk, steps) -> {
+                        int newDepth = moveDepth + steps;
+                        Integer entryDepth = entriesDepths.get(newMove);
+                        if (((entryDepth != null) && (entryDepth <= newDepth)) ||
+                                knownMoves.contains(newMove, objectives.pending()) ||
+                                deadStates.isDead(newMove, objectives.pending())) {
+                            return false;
+                        }
+                        while (entries.size() <= newDepth) {
+                            entries.add(new ArrayDeque<>());
+                        }
+                        Move keptMove = player.board.keep(newMove);
+                        entriesDepths.put(keptMove, newDepth);
+                        entries.get(newDepth).addLast(new Entry(keptMove, walk));
+                        return false;
+                    });
+                }
+                if (knownMoves.size() >= maxStates) {
+                    out.println(knownMoves);
+                    out.println(" ### Aborted !");
+                    return new SearchResult(SearchResult.Outcome.ABORTED, objectives.reached(), knownMoves.size());
+                }
+            }
+            entries.set(depth, null);
+            player.board.clearKept();
+        }
+        out.println(knownMoves);
+        out.println(" ### Fail !");
+        return new SearchResult(SearchResult.Outcome.FAIL, objectives.reached(), knownMoves.size());
+    }
+
+    /**
+     * Flood fill of the cells and facings the player can walk to from a move without changing the board,
+     * calling the callback for all the other moves generated from them, by increasing number of steps.
+     *
+     * @return true if the callback stopped the walk
+     */
+    private boolean walk(@NotNull Move initialMove, @NotNull WalkCallback callback) {
+        walkNumber += 1;
+        int initialNode = node(initialMove);
+        visited[initialNode] = walkNumber;
+        parents[initialNode] = NO_WALK;
+        distances[initialNode] = 0;
+        walkMoves.clear();
+        walkMoves.addLast(initialMove);
+        while (!walkMoves.isEmpty()) {
+            Move currentMove = walkMoves.removeFirst();
+            int currentNode = node(currentMove);
+            int walk = (currentNode == initialNode) ? NO_WALK : currentNode;
+            int distance = distances[currentNode];
+            if (Player.nextMoves(level, board, currentMove, newMove -> {
+                if (!isStep(currentMove, newMove)) {
+                    return callback.accept(newMove, walk, distance + 1);
+                }
+                int newNode = node(newMove);
+                if (visited[newNode] != walkNumber) {
+                    visited[newNode] = walkNumber;
+                    parents[newNode] = currentNode;
+                    steps[newNode] = newMove.action;
+                    distances[newNode] = distance + 1;
+                    // Same layers as the current move, so they are shared instead of copied
+                    Move walkMove = new Move(
+                            newMove.playerPositionIndex,
+                            newMove.playerDirection,
+                            currentMove.playerState,
+                            currentMove.groundLayer,
+                            currentMove.upLayer,
+                            currentMove.enemies,
+                            currentMove.rupeesFound,
+                            currentMove.layersHash,
+                            newMove.hash,
+                            newMove.action,
+                            currentMove.pathId);
+                    walkMove.pathId = currentMove.pathId;
+                    walkMoves.addLast(walkMove);
+                }
+                return false;
+            })) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the move only moves or turns the player, without changing the board nor ending the level
+     */
+    private static boolean isStep(@NotNull Move currentMove, @NotNull Move newMove) {
+        return (newMove.playerState == currentMove.playerState) &&
+                (newMove.rupeesFound == currentMove.rupeesFound) &&
+                (newMove.layersHash == currentMove.layersHash) &&
+                (newMove.groundEntity(newMove.playerPositionIndex) != ENTITY_GROUND_DOWNSTAIR) &&
+                Arrays.equals(newMove.groundLayer, currentMove.groundLayer) &&
+                Arrays.equals(newMove.upLayer, currentMove.upLayer);
+    }
+
+    private static int node(@NotNull Move move) {
+        return move.playerPositionIndex * DIRECTIONS.length + move.playerDirection.ordinal();
+    }
+
+    /**
+     * Replay macro actions from the initial move, expanding each walk into the steps of a shortest walk.
+     */
+    private @NotNull List<Action> actions(@NotNull Preparer.PreparationResult preparationResult, @NotNull List<MacroAction> macroActions) {
+        List<Action> result = new ArrayList<>();
+        Move currentMove = preparationResult.move();
+        for (MacroAction macroAction : macroActions) {
+            if (macroAction.walk() != NO_WALK) {
+                walk(currentMove, (newMove, walk, steps) -> false);
+                if (visited[macroAction.walk()] != walkNumber) {
+                    throw new IllegalStateException("Walk to " + macroAction.walk() + " not found");
+                }
+                List<Action> walkSteps = new ArrayList<>();
+                for (int node = macroAction.walk(); parents[node] != NO_WALK; node = parents[node]) {
+                    walkSteps.add(steps[node]);
+                }
+                for (Action step : walkSteps.reversed()) {
+                    currentMove = Player.simulate(level, currentMove, step);
+                    result.add(step);
+                }
+            }
+            currentMove = Player.simulate(level, currentMove, macroAction.action());
+            result.add(macroAction.action());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Progress of a breadth-first search: states expanded per second, size of the depths,
+ * part of the generated moves already seen, heap used and bytes per state.
+ * They are reported periodically to stderr or appended to a CSV file,
+ * and recorded as {@link SearchEvents} when a JFR recording is running.
+ */
+final class Metrics {
+
+    private static final String CSV_HEADER = "time_s,level,depth,frontier,states,expanded,expanded_per_s,duplicate_rate,heap_used_mb,bytes_per_state";
+
+    /**
+     * Period when no report is asked, for the JFR events.
+     */
+    private static final long DEFAULT_PERIOD = 10;
+
+    /**
+     * The time is checked once every this number of expanded states.
+     */
+    private static final int CHECK_MASK = (1 << 12) - 1;
+
+    private static final Object CSV_LOCK = new Object();
+
+    private final @NotNull String level;
+    private final boolean report;
+    private final @Nullable Path csvFile;
+    private final long periodNanos;
+    private final long start = System.nanoTime();
+
+    private int depth = 0;
+    private long frontier = 1;
+    private long expanded = 0;
+    private long lookups = 0;
+    private long duplicates = 0;
+
+    private long nextReport;
+    private long lastReportTime = start;
+    private long lastReportExpanded = 0;
+
+    /**
+     * @param period  seconds between two reports, 0 to only record the JFR events
+     * @param csvFile file the reports are appended to, null to print them to stderr
+     */
+    Metrics(@NotNull String level, long period, @Nullable Path csvFile) {
+        this.level = level;
+        this.report = period > 0;
+        this.csvFile = csvFile;
+        periodNanos = ((period > 0) ? period : DEFAULT_PERIOD) * 1_000_000_000L;
+        nextReport = start + periodNanos;
+    }
+
+    static @NotNull Metrics create(@NotNull String level, @NotNull Options options) {
+        return new Metrics(level, options.metricsPeriod, options.metricsFile);
+    }
+
+    /**
+     * A depth starts.
+     */
+    void depth(int depth, long frontier, long states) {
+        this.depth = depth;
+        this.frontier = frontier;
+        SearchEvents.Depth event = new SearchEvents.Depth();
+        if (event.shouldCommit()) {
+            event.level = level;
+            event.depth = depth;
+            event.frontier = frontier;
+            event.states = states;
+            event.commit();
+        }
+    }
+
+    /**
+     * A generated move has been looked up in the known moves.
+     */
+    void lookup(boolean added) {
+        lookups += 1;
+        if (!added) {
+            duplicates += 1;
+        }
+    }
+
+    /**
+     * A move has been expanded.
+     */
+    void expanded(long states) {
+        expanded += 1;
+        if ((expanded & CHECK_MASK) == 0) {
+            long now = System.nanoTime();
+            if (now >= nextReport) {
+                report(now, states);
+                nextReport = now + periodNanos;
+            }
+        }
+    }
+
+    /**
+     * The search is over.
+     */
+    void end(long states) {
+        if (report) {
+            report(System.nanoTime(), states);
+        }
+    }
+
+    private void report(long now, long states) {
+        double expandedPerSecond = (expanded - lastReportExpanded) / ((now - lastReportTime) / 1e9);
+        lastReportTime = now;
+        lastReportExpanded = expanded;
+        double duplicateRate = (lookups == 0) ? 0 : ((double) duplicates) / lookups;
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        long bytesPerState = (states == 0) ? 0 : heapUsed / states;
+
+        SearchEvents.Progress event = new SearchEvents.Progress();
+        if (event.shouldCommit()) {
+            event.level = level;
+            event.depth = depth;
+            event.frontier = frontier;
+            event.states = states;
+            event.expanded = expanded;
+            event.expandedPerSecond = expandedPerSecond;
+            event.duplicateRate = duplicateRate;
+            event.heapUsed = heapUsed;
+            event.bytesPerState = bytesPerState;
+            event.commit();
+        }
+        if (!report) {
+            return;
+        }
+
+        double time = (now - start) / 1e9;
+        if (csvFile == null) {
+            System.err.println(String.format(Locale.ROOT,
+                    "[%s] %.0f s, depth %d of %d moves, %d states, %d expanded (%.0f/s), %.1f%% duplicates, %d MB heap, %d B/state",
+                    level, time, depth, frontier, states, expanded, expandedPerSecond,
+                    duplicateRate * 100, heapUsed / (1024 * 1024), bytesPerState));
+        } else {
+            String line = String.format(Locale.ROOT,
+                    "%.3f,%s,%d,%d,%d,%d,%.0f,%.4f,%d,%d%n",
+                    time, level, depth, frontier, states, expanded, expandedPerSecond,
+                    duplicateRate, heapUsed / (1024 * 1024), bytesPerState);
+            synchronized (CSV_LOCK) {
+                try {
+                    if ((!Files.exists(csvFile)) || (Files.size(csvFile) == 0)) {
+                        line = CSV_HEADER + System.lineSeparator() + line;
+                    }
+                    Files.writeString(csvFile, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+}
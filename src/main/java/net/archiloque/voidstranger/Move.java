@@ -1,40 +1,74 @@
 package net.archiloque.voidstranger;
 
-import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import static net.archiloque.voidstranger.GroundEntity.*;
 
 @ToString
-@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY, callSuper = false, doNotUseGetters = true)
-public final class Move {
+public final class Move implements MoveView {
     final int playerPositionIndex;
     @NotNull
     final Direction playerDirection;
     @NotNull
     final PlayerState playerState;
-    final char @NotNull [] groundEntities;
-    final char @NotNull [] upEntities;
+    final long @NotNull [] groundLayer;
+    final long @NotNull [] upLayer;
 
-    final boolean @NotNull [] rupeesFound;
+    /**
+     * Sorted indexes of the cells of the up layer holding an enemy, shared between moves and never modified.
+     * For a move built by a {@link Board} and not kept yet, it can be the buffer of the board, whose length is not the number of enemies.
+     */
+    @ToString.Exclude
+    final int @NotNull [] enemies;
 
+    final long rupeesFound;
+
+    /**
+     * Zobrist hash of the two layers.
+     */
+    @ToString.Exclude
+    final long layersHash;
+
+    /**
+     * Zobrist hash of the whole move, compared before the content in {@link #equals(Object)}.
+     */
+    @ToString.Exclude
+    final long hash;
+
+    /**
+     * Action leading to this move, null for the initial move.
+     */
     @Nullable
-    @EqualsAndHashCode.Exclude
-    final ActionLinkedElement actions;
+    final Action action;
+
+    /**
+     * Path id of the move this one comes from, see {@link PathStore}.
+     */
+    @ToString.Exclude
+    final int parentPathId;
+
+    /**
+     * Path id of this move, set when the search stores it.
+     */
+    @ToString.Exclude
+    int pathId = PathStore.NO_PATH;
 
     public Move(
             int playerPositionIndex,
             @NotNull Direction playerDirection,
             @NotNull PlayerState playerState,
-            char @NotNull [] groundEntities,
-            char @NotNull [] upEntities,
-            boolean @NotNull [] rupeesFound,
-            @Nullable ActionLinkedElement actions
+            long @NotNull [] groundLayer,
+            long @NotNull [] upLayer,
+            int @NotNull [] enemies,
+            long rupeesFound,
+            long layersHash,
+            long hash,
+            @Nullable Action action,
+            int parentPathId
     ) {
         this.playerPositionIndex = playerPositionIndex;
         if(playerPositionIndex < 0) {
@@ -42,20 +76,79 @@ public final class Move {
         }
         this.playerDirection = playerDirection;
         this.playerState = playerState;
-        this.groundEntities = groundEntities;
-        this.upEntities = upEntities;
+        this.groundLayer = groundLayer;
+        this.upLayer = upLayer;
+        this.enemies = enemies;
         this.rupeesFound = rupeesFound;
-        this.actions = actions;
+        this.layersHash = layersHash;
+        this.hash = hash;
+        this.action = action;
+        this.parentPathId = parentPathId;
+    }
+
+    /**
+     * @return a move with its own layers, the searches keeping the moves built on a {@link Board} with {@link Board#keep(Move)}
+     */
+    @NotNull Move copy() {
+        return new Move(
+                playerPositionIndex,
+                playerDirection,
+                playerState,
+                groundLayer.clone(),
+                upLayer.clone(),
+                enemies,
+                rupeesFound,
+                layersHash,
+                hash,
+                action,
+                parentPathId);
     }
 
-    public List<Action> getActions() {
-        Move.ActionLinkedElement currentAction = actions;
-        List<Action> actionsList = new ArrayList<>();
-        while (currentAction != null) {
-            actionsList.add(currentAction.action());
-            currentAction = currentAction.parent();
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Move move)) {
+            return false;
         }
-        return actionsList.reversed();
+        return (hash == move.hash) &&
+                (playerPositionIndex == move.playerPositionIndex) &&
+                (playerDirection == move.playerDirection) &&
+                (playerState == move.playerState) &&
+                (rupeesFound == move.rupeesFound) &&
+                Arrays.equals(groundLayer, move.groundLayer) &&
+                Arrays.equals(upLayer, move.upLayer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public int playerPositionIndex() {
+        return playerPositionIndex;
+    }
+
+    @Override
+    public @NotNull PlayerState playerState() {
+        return playerState;
+    }
+
+    @Override
+    public char groundEntity(int index) {
+        return Layers.groundEntity(groundLayer, index);
+    }
+
+    @Override
+    public char upEntity(int index) {
+        return Layers.upEntity(upLayer, index);
+    }
+
+    @Override
+    public boolean rupeeFound(int rupeeIndex) {
+        return (rupeesFound & (1L << rupeeIndex)) != 0;
     }
 
     public enum PlayerState {
@@ -86,8 +179,4 @@ public final class Move {
             default -> throw new IllegalStateException("Unexpected value: " + groundEntity);
         }
     }
-
-
-    public record ActionLinkedElement(@NotNull Action action, @Nullable ActionLinkedElement parent) {
-    }
 }
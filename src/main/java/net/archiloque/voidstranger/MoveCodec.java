@@ -0,0 +1,82 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Pack a move of a level into a fixed number of longs:
+ * the player, the rupees found, the ground layer then the up layer.
+ * The actions are not packed.
+ */
+final class MoveCodec {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Move.PlayerState[] PLAYER_STATES = Move.PlayerState.values();
+
+    private final @NotNull Level level;
+    final int groundLayerSize;
+    final int upLayerSize;
+
+    /**
+     * Number of longs of a packed move.
+     */
+    final int size;
+
+    MoveCodec(@NotNull Level level) {
+        this.level = level;
+        int cellsNumber = level.positions().length;
+        groundLayerSize = Layers.newGroundLayer(cellsNumber).length;
+        upLayerSize = Layers.newUpLayer(cellsNumber).length;
+        size = 2 + groundLayerSize + upLayerSize;
+    }
+
+    void write(@NotNull Move move, long @NotNull [] target, int offset) {
+        target[offset] = header(move);
+        target[offset + 1] = move.rupeesFound;
+        System.arraycopy(move.groundLayer, 0, target, offset + 2, groundLayerSize);
+        System.arraycopy(move.upLayer, 0, target, offset + 2 + groundLayerSize, upLayerSize);
+    }
+
+    @NotNull Move read(long @NotNull [] source, int offset) {
+        long header = source[offset];
+        int playerPositionIndex = playerPositionIndex(header);
+        Direction playerDirection = playerDirection(header);
+        Move.PlayerState playerState = playerState(header);
+        long rupeesFound = source[offset + 1];
+        long[] groundLayer = Arrays.copyOfRange(source, offset + 2, offset + 2 + groundLayerSize);
+        long[] upLayer = Arrays.copyOfRange(source, offset + 2 + groundLayerSize, offset + size);
+        Zobrist zobrist = level.zobrist();
+        long layersHash = zobrist.layersHash(groundLayer, upLayer, level.positions().length);
+        return new Move(
+                playerPositionIndex,
+                playerDirection,
+                playerState,
+                groundLayer,
+                upLayer,
+                Layers.enemies(upLayer, level.positions().length),
+                rupeesFound,
+                layersHash,
+                zobrist.moveHash(layersHash, playerPositionIndex, playerDirection, playerState, rupeesFound),
+                null,
+                PathStore.NO_PATH);
+    }
+
+    static long header(@NotNull Move move) {
+        return (((long) move.playerPositionIndex) << 16) |
+                (move.playerDirection.ordinal() << 8) |
+                move.playerState.ordinal();
+    }
+
+    static int playerPositionIndex(long header) {
+        return (int) (header >>> 16);
+    }
+
+    static @NotNull Direction playerDirection(long header) {
+        return DIRECTIONS[((int) (header >>> 8)) & 0xFF];
+    }
+
+    static @NotNull Move.PlayerState playerState(long header) {
+        return PLAYER_STATES[((int) header) & 0xFF];
+    }
+}
@@ -0,0 +1,20 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Read access to the player and the cells of a move,
+ * so the checks done on each move also run on an {@link InPlaceBoard} without building a {@link Move}.
+ */
+interface MoveView {
+
+    int playerPositionIndex();
+
+    @NotNull Move.PlayerState playerState();
+
+    char groundEntity(int index);
+
+    char upEntity(int index);
+
+    boolean rupeeFound(int rupeeIndex);
+}
@@ -0,0 +1,129 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keep track of the objectives reached during a search and print their solutions.
+ */
+final class Objectives {
+
+    private final @NotNull Preparer.PreparationResult preparationResult;
+    private final @NotNull EnumMap<Player.MoveStatus, List<Action>> reached = new EnumMap<>(Player.MoveStatus.class);
+    private final @NotNull EnumSet<Player.MoveStatus> pending = EnumSet.noneOf(Player.MoveStatus.class);
+
+    /**
+     * The objectives searched are the targets the level can have:
+     * the rupee and chest objectives need both rupees and chests, as finding all the rupees of a level without chest wins it,
+     * the exit objective needs rupees or chests,
+     * and the objectives needing a rupee or a chest that can't be reached from the start are removed.
+     *
+     * @param targets the objectives to search
+     */
+    Objectives(@NotNull Preparer.PreparationResult preparationResult, @NotNull Set<Player.MoveStatus> targets) {
+        this.preparationResult = preparationResult;
+        pending.addAll(available(preparationResult, targets));
+    }
+
+    /**
+     * @return the targets the level can have and that can be reached from the start
+     */
+    static @NotNull Set<Player.MoveStatus> available(@NotNull Preparer.PreparationResult preparationResult, @NotNull Set<Player.MoveStatus> targets) {
+        Level level = preparationResult.level();
+        boolean hasRupee = level.rupeesIndexes().length > 0;
+        EnumSet<Player.MoveStatus> possible = EnumSet.of(Player.MoveStatus.WIN);
+        if (hasRupee && level.hasChest()) {
+            possible.add(Player.MoveStatus.RUPEE);
+            possible.add(Player.MoveStatus.CHEST);
+        }
+        if (hasRupee || level.hasChest()) {
+            possible.add(Player.MoveStatus.EXIT);
+        }
+        possible.retainAll(targets);
+        return new DeadStates(level, preparationResult.move()).initialObjectives(possible);
+    }
+
+    /**
+     * Print the solution if the objective is searched and this is the first time it is reached.
+     *
+     * @param actions the actions leading to the move, only rebuilt when the solution is printed
+     * @return true if the search is over: the level is won, or all the objectives searched have been reached
+     */
+    boolean reach(@NotNull Player.MoveStatus moveStatus, @NotNull Supplier<List<Action>> actions) {
+        if (!pending.remove(moveStatus)) {
+            return false;
+        }
+        List<Action> path = actions.get();
+        reached.put(moveStatus, path);
+        printPath(preparationResult, moveStatus, path);
+        return (moveStatus == Player.MoveStatus.WIN) || pending.isEmpty();
+    }
+
+    /**
+     * Mark an objective as reached by a previous search, without printing its solution again.
+     */
+    void restore(@NotNull Player.MoveStatus moveStatus, @NotNull List<Action> actions) {
+        pending.remove(moveStatus);
+        reached.put(moveStatus, actions);
+    }
+
+    boolean won() {
+        return reached.containsKey(Player.MoveStatus.WIN);
+    }
+
+    /**
+     * @return true if the level is won or all the objectives searched have been reached
+     */
+    boolean done() {
+        return won() || pending.isEmpty();
+    }
+
+    /**
+     * @return the outcome of a search that is {@link #done()}
+     */
+    @NotNull SearchResult.Outcome outcome() {
+        return won() ? SearchResult.Outcome.WIN : SearchResult.Outcome.COMPLETE;
+    }
+
+    /**
+     * @return the actions of the solution of each objective reached
+     */
+    @NotNull Map<Player.MoveStatus, List<Action>> reached() {
+        return new EnumMap<>(reached);
+    }
+
+    /**
+     * @return the objectives that the level can have and that have not been reached yet, not to be modified
+     */
+    @NotNull Set<Player.MoveStatus> pending() {
+        return pending;
+    }
+
+    static void printPath(@NotNull Preparer.PreparationResult preparationResult, @NotNull Player.MoveStatus moveStatus, @NotNull List<Action> actions) {
+        try {
+            Printer.printPath(preparationResult.level(), preparationResult.move(), actions, suffix(moveStatus));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the suffix of the solution file of an objective
+     */
+    private static @NotNull String suffix(@NotNull Player.MoveStatus moveStatus) {
+        return switch (moveStatus) {
+            case WIN -> "";
+            case RUPEE -> "_rupee";
+            case CHEST -> "_chest";
+            case EXIT -> "_exit";
+            case LOOSE -> throw new IllegalArgumentException(moveStatus.name());
+        };
+    }
+}
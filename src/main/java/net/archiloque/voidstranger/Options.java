@@ -0,0 +1,249 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Command line options, placed before the other arguments, e.g. {@code --threads=4 B012}.
+ */
+public final class Options {
+
+    private static final String THREADS = "--threads=";
+    private static final String BATCH = "--batch";
+    private static final String MAX_STATES = "--max-states=";
+    private static final String SEARCH = "--search=";
+    private static final String OBJECTIVES = "--objectives=";
+    private static final String OBJECTIVES_VALUES = "the objectives are win, rupee, chest and exit";
+    private static final String CHECK = "--check";
+    private static final String COMPILE = "--compile";
+    private static final String CACHE = "--cache";
+    private static final String LDTK = "--ldtk";
+    private static final String MACRO = "--macro";
+    private static final String CHECKPOINT = "--checkpoint=";
+    private static final String CHECKPOINT_PERIOD = "--checkpoint-period=";
+    private static final String RESUME = "--resume";
+    private static final String METRICS = "--metrics";
+    private static final String METRICS_CSV = "--metrics-csv=";
+
+    /**
+     * Default number of seconds between two metrics reports.
+     */
+    private static final long METRICS_PERIOD = 10;
+
+    /**
+     * Default number of seconds between two checkpoints.
+     */
+    private static final long CHECKPOINT_PERIOD_DEFAULT = 600;
+
+    enum Search {
+        /**
+         * Breadth-first search.
+         */
+        BFS,
+        /**
+         * Best-first search guided by {@link Heuristic}.
+         */
+        ASTAR,
+        /**
+         * Iterative deepening depth-first search guided by {@link Heuristic}, using a fixed amount of memory.
+         */
+        IDASTAR,
+        /**
+         * Breadth-first search keeping its states on disk.
+         */
+        EXTERNAL,
+    }
+
+    /**
+     * Search algorithm.
+     */
+    @NotNull Search search = Search.BFS;
+
+    /**
+     * Objectives searched, the search stops once all the ones that can still be reached are found.
+     */
+    @NotNull Set<Player.MoveStatus> objectives = EnumSet.complementOf(EnumSet.of(Player.MoveStatus.LOOSE));
+
+    /**
+     * Check the {@link InPlaceBoard} against {@link Player} instead of solving the levels.
+     */
+    boolean check = false;
+
+    /**
+     * Write the {@link CompiledLevel} files instead of solving the levels.
+     */
+    boolean compile = false;
+
+    /**
+     * Replay the solutions of the {@link SolutionCache} instead of solving the levels again.
+     */
+    boolean cache = false;
+
+    /**
+     * Read the levels from the LDtk project instead of the simplified export.
+     */
+    boolean ldtk = false;
+
+    /**
+     * Use the {@link MacroPlayer} for the breadth-first search of the levels without enemy.
+     */
+    boolean macro = false;
+
+    /**
+     * Seconds between two reports of the {@link Metrics} of the breadth-first search, 0 means no report.
+     */
+    long metricsPeriod = 0;
+
+    /**
+     * CSV file the metrics are appended to, null means stderr.
+     */
+    @Nullable Path metricsFile = null;
+
+    /**
+     * Directory of the {@link Checkpoint} of the breadth-first search, null means no checkpoint.
+     */
+    @Nullable Path checkpointDirectory = null;
+
+    /**
+     * Seconds between two checkpoints.
+     */
+    long checkpointPeriod = CHECKPOINT_PERIOD_DEFAULT;
+
+    /**
+     * Resume the search from its checkpoint if there is one.
+     */
+    boolean resume = false;
+
+    /**
+     * Number of threads used by the breadth-first search, 1 means the sequential search.
+     */
+    int threads = 1;
+
+    /**
+     * Number of levels solved at the same time when solving all the levels, 0 means one after the other.
+     */
+    int batch = 0;
+
+    /**
+     * Maximum number of states of a search, in batch mode the default is computed from the available memory.
+     */
+    long maxStates = Long.MAX_VALUE;
+
+    /**
+     * The arguments that are not options.
+     */
+    final @NotNull List<String> arguments = new ArrayList<>();
+
+    private Options() {
+    }
+
+    public static @NotNull Options parse(@NotNull String @NotNull [] args) {
+        Options options = new Options();
+        for (String arg : args) {
+            if (arg.startsWith(THREADS)) {
+                options.threads = Integer.parseInt(arg.substring(THREADS.length()));
+                if (options.threads < 1) {
+                    throw new IllegalArgumentException(arg);
+                }
+            } else if (arg.equals(BATCH)) {
+                options.batch = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith(BATCH + "=")) {
+                options.batch = Integer.parseInt(arg.substring(BATCH.length() + 1));
+                if (options.batch < 1) {
+                    throw new IllegalArgumentException(arg);
+                }
+            } else if (arg.startsWith(MAX_STATES)) {
+                options.maxStates = Long.parseLong(arg.substring(MAX_STATES.length()));
+                if (options.maxStates < 1) {
+                    throw new IllegalArgumentException(arg);
+                }
+            } else if (arg.startsWith(SEARCH)) {
+                options.search = Search.valueOf(arg.substring(SEARCH.length()).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith(OBJECTIVES)) {
+                options.objectives = parseObjectives(arg);
+            } else if (arg.startsWith(METRICS_CSV)) {
+                options.metricsFile = Path.of(arg.substring(METRICS_CSV.length()));
+            } else if (arg.equals(METRICS)) {
+                options.metricsPeriod = METRICS_PERIOD;
+            } else if (arg.startsWith(METRICS + "=")) {
+                options.metricsPeriod = Long.parseLong(arg.substring(METRICS.length() + 1));
+                if (options.metricsPeriod < 1) {
+                    throw new IllegalArgumentException(arg);
+                }
+            } else if (arg.equals(CHECK)) {
+                options.check = true;
+            } else if (arg.equals(COMPILE)) {
+                options.compile = true;
+            } else if (arg.equals(CACHE)) {
+                options.cache = true;
+            } else if (arg.equals(LDTK)) {
+                options.ldtk = true;
+            } else if (arg.equals(MACRO)) {
+                options.macro = true;
+            } else if (arg.startsWith(CHECKPOINT)) {
+                options.checkpointDirectory = Path.of(arg.substring(CHECKPOINT.length()));
+            } else if (arg.startsWith(CHECKPOINT_PERIOD)) {
+                options.checkpointPeriod = Long.parseLong(arg.substring(CHECKPOINT_PERIOD.length()));
+                if (options.checkpointPeriod < 1) {
+                    throw new IllegalArgumentException(arg);
+                }
+            } else if (arg.equals(RESUME)) {
+                options.resume = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            } else {
+                options.arguments.add(arg);
+            }
+        }
+        if ((options.metricsFile != null) && (options.metricsPeriod == 0)) {
+            options.metricsPeriod = METRICS_PERIOD;
+        }
+        if (options.resume && (options.checkpointDirectory == null)) {
+            throw new IllegalArgumentException(RESUME + " requires " + CHECKPOINT + "DIR");
+        }
+        // Only the sequential breadth-first search writes checkpoints and reports metrics
+        if ((options.threads > 1) || (options.search != Search.BFS)) {
+            String engine = (options.search != Search.BFS) ?
+                    SEARCH + options.search.name().toLowerCase(Locale.ROOT) :
+                    THREADS + options.threads;
+            if (options.checkpointDirectory != null) {
+                throw new IllegalArgumentException(CHECKPOINT + "DIR can't be used with " + engine);
+            }
+            if (options.metricsPeriod > 0) {
+                throw new IllegalArgumentException(METRICS + " can't be used with " + engine);
+            }
+        }
+        return options;
+    }
+
+    private static @NotNull Set<Player.MoveStatus> parseObjectives(@NotNull String arg) {
+        Set<Player.MoveStatus> objectives = EnumSet.noneOf(Player.MoveStatus.class);
+        for (String objective : arg.substring(OBJECTIVES.length()).split(",")) {
+            String name = objective.trim().toUpperCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            Player.MoveStatus moveStatus;
+            try {
+                moveStatus = Player.MoveStatus.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                moveStatus = Player.MoveStatus.LOOSE;
+            }
+            if (moveStatus == Player.MoveStatus.LOOSE) {
+                throw new IllegalArgumentException("Unknown objective " + objective.trim() + " in " + arg + ", " + OBJECTIVES_VALUES);
+            }
+            objectives.add(moveStatus);
+        }
+        if (objectives.isEmpty()) {
+            throw new IllegalArgumentException(OBJECTIVES + " requires at least one objective, " + OBJECTIVES_VALUES);
+        }
+        return objectives;
+    }
+}
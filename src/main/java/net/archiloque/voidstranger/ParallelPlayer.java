@@ -0,0 +1,150 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Level-synchronous breadth-first search: each depth is split into chunks
+ * expanded in parallel, and the next depth starts only when all the chunks are done,
+ * so the first move found for an objective is still a shortest one.
+ * The moves kept are added to the {@link PathStore} by the main thread once their depth is done.
+ */
+public class ParallelPlayer {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private record Reached(@NotNull Move move, @NotNull Player.MoveStatus moveStatus) {
+    }
+
+    private record ChunkResult(@NotNull List<Move> nextMoves, @NotNull List<Reached> reached) {
+    }
+
+    /**
+     * @param targets   the objectives to search
+     * @param maxStates the search stops after this number of states
+     */
+    static @NotNull SearchResult play(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Set<Player.MoveStatus> targets,
+            @NotNull PrintStream out,
+            int threads,
+            long maxStates) {
+        Level level = preparationResult.level();
+        ShardedVisitedStates knownMoves = new ShardedVisitedStates(level, threads);
+        knownMoves.add(preparationResult.move());
+        Objectives objectives = new Objectives(preparationResult, targets);
+        PathStore paths = new PathStore();
+        // Not thread-safe, so each thread of the pool has its own
+        ThreadLocal<DeadStates> deadStates = ThreadLocal.withInitial(() -> new DeadStates(level, preparationResult.move()));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Move> currentMoves = List.of(preparationResult.move());
+            while (!currentMoves.isEmpty()) {
+                List<ChunkResult> chunkResults = expand(pool, level, knownMoves, deadStates, objectives.pending(), currentMoves, threads, maxStates);
+                List<Move> nextMoves = new ArrayList<>();
+                for (ChunkResult chunkResult : chunkResults) {
+                    for (Reached reached : chunkResult.reached()) {
+                        if (objectives.reach(reached.moveStatus(), () -> paths.actions(reached.move()))) {
+                            out.println(knownMoves);
+                            return new SearchResult(objectives.outcome(), objectives.reached(), knownMoves.size());
+                        }
+                    }
+                    for (Move nextMove : chunkResult.nextMoves()) {
+                        paths.add(nextMove);
+                        nextMoves.add(nextMove);
+                    }
+                }
+                if (knownMoves.size() >= maxStates) {
+                    out.println(knownMoves);
+                    out.println(" ### Aborted !");
+                    return new SearchResult(SearchResult.Outcome.ABORTED, objectives.reached(), knownMoves.size());
+                }
+                currentMoves = nextMoves;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.println(knownMoves);
+        out.println(" ### Fail !");
+        return new SearchResult(SearchResult.Outcome.FAIL, objectives.reached(), knownMoves.size());
+    }
+
+    private static @NotNull List<ChunkResult> expand(
+            @NotNull ForkJoinPool pool,
+            @NotNull Level level,
+            @NotNull ShardedVisitedStates knownMoves,
+            @NotNull ThreadLocal<DeadStates> deadStates,
+            @NotNull Set<Player.MoveStatus> pendingObjectives,
+            @NotNull List<Move> currentMoves,
+            int threads,
+            long maxStates) {
+        int chunksNumber = Math.min(currentMoves.size(), threads * CHUNKS_PER_THREAD);
+        int chunkSize = (currentMoves.size() + chunksNumber - 1) / chunksNumber;
+        AtomicInteger firstWinningChunk = new AtomicInteger(Integer.MAX_VALUE);
+        List<Callable<ChunkResult>> tasks = new ArrayList<>(chunksNumber);
+        for (int chunkStart = 0; chunkStart < currentMoves.size(); chunkStart += chunkSize) {
+            int chunkIndex = tasks.size();
+            List<Move> chunk = currentMoves.subList(chunkStart, Math.min(chunkStart + chunkSize, currentMoves.size()));
+            tasks.add(() -> expandChunk(level, knownMoves, deadStates, pendingObjectives, chunk, chunkIndex, firstWinningChunk, maxStates));
+        }
+        List<ChunkResult> chunkResults = new ArrayList<>(tasks.size());
+        try {
+            for (Future<ChunkResult> future : pool.invokeAll(tasks)) {
+                chunkResults.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return chunkResults;
+    }
+
+    private static @NotNull ChunkResult expandChunk(
+            @NotNull Level level,
+            @NotNull ShardedVisitedStates knownMoves,
+            @NotNull ThreadLocal<DeadStates> deadStates,
+            @NotNull Set<Player.MoveStatus> pendingObjectives,
+            @NotNull List<Move> chunk,
+            int chunkIndex,
+            @NotNull AtomicInteger firstWinningChunk,
+            long maxStates) {
+        List<Move> nextMoves = new ArrayList<>();
+        List<Reached> reached = new ArrayList<>();
+        Board board = new Board(level);
+        DeadStates threadDeadStates = deadStates.get();
+        for (Move currentMove : chunk) {
+            // Objectives reached after a win are not reported, so the chunks after it can stop
+            if ((firstWinningChunk.get() < chunkIndex) || (knownMoves.size() >= maxStates)) {
+                break;
+            }
+            if (Player.nextMoves(level, board, currentMove, newMove -> {
+                if ((!threadDeadStates.isDead(newMove, pendingObjectives)) && knownMoves.add(newMove)) {
+                    Player.MoveStatus moveStatus = Player.moveStatus(newMove, level);
+                    if (moveStatus == Player.MoveStatus.LOOSE) {
+                        nextMoves.add(board.keep(newMove));
+                    } else {
+                        reached.add(new Reached(board.keep(newMove), moveStatus));
+                        return moveStatus == Player.MoveStatus.WIN;
+                    }
+                }
+                return false;
+            })) {
+                firstWinningChunk.accumulateAndGet(chunkIndex, Math::min);
+                break;
+            }
+        }
+        return new ChunkResult(nextMoves, reached);
+    }
+}
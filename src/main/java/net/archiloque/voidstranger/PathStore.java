@@ -0,0 +1,133 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Actions of the moves kept by a search: for each path id the path id of the parent move
+ * and the action leading from it, the actions being rebuilt only when a solution is printed.
+ */
+final class PathStore {
+
+    /**
+     * Path id of the initial move, which is not stored.
+     */
+    static final int NO_PATH = -1;
+
+    /**
+     * Number of bytes of a path: the parent path id and the action.
+     */
+    static final int PATH_BYTES = Integer.BYTES + Byte.BYTES;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final Action[] ACTIONS = Action.values();
+
+    private int @NotNull [] parents = new int[INITIAL_CAPACITY];
+    private byte @NotNull [] actions = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Walk before the action of each path, only filled by the {@link MacroPlayer}.
+     */
+    private int @NotNull [] walks = new int[0];
+    private int size = 0;
+
+    /**
+     * Store a move kept by the search.
+     *
+     * @return the path id of the move
+     */
+    int add(@NotNull Move move) {
+        if (size == parents.length) {
+            parents = Arrays.copyOf(parents, size * 2);
+            actions = Arrays.copyOf(actions, size * 2);
+        }
+        parents[size] = move.parentPathId;
+        actions[size] = (byte) move.action.ordinal();
+        move.pathId = size;
+        return size++;
+    }
+
+    /**
+     * Store a move kept by the {@link MacroPlayer} with the walk leading to its action.
+     *
+     * @return the path id of the move
+     */
+    int add(@NotNull Move move, int walk) {
+        int pathId = add(move);
+        if (walks.length < parents.length) {
+            walks = Arrays.copyOf(walks, parents.length);
+        }
+        walks[pathId] = walk;
+        return pathId;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the paths added since a previous call, for a {@link Checkpoint}:
+     * the paths are never modified once added, so they can be written while new ones are added
+     */
+    @NotNull Checkpoint.Snapshot pathsSnapshot(int fromPathId) {
+        int[] snapshotParents = parents;
+        byte[] snapshotActions = actions;
+        int toPathId = size;
+        return output -> {
+            for (int pathId = fromPathId; pathId < toPathId; pathId++) {
+                output.writeInt(snapshotParents[pathId]);
+                output.writeByte(snapshotActions[pathId]);
+            }
+        };
+    }
+
+    /**
+     * Add the paths written by {@link #pathsSnapshot}.
+     */
+    void readPaths(@NotNull DataInputStream input, int pathsNumber) throws IOException {
+        int newSize = size + pathsNumber;
+        if (newSize > parents.length) {
+            int capacity = Math.max(parents.length * 2, Integer.highestOneBit(newSize - 1) << 1);
+            parents = Arrays.copyOf(parents, capacity);
+            actions = Arrays.copyOf(actions, capacity);
+        }
+        for (; size < newSize; size++) {
+            parents[size] = input.readInt();
+            actions[size] = input.readByte();
+        }
+    }
+
+    /**
+     * @return the actions leading to a move, which does not have to be stored
+     */
+    @NotNull List<Action> actions(@NotNull Move move) {
+        List<Action> result = new ArrayList<>();
+        if (move.action != null) {
+            result.add(move.action);
+        }
+        for (int pathId = move.parentPathId; pathId != NO_PATH; pathId = parents[pathId]) {
+            result.add(ACTIONS[actions[pathId]]);
+        }
+        return result.reversed();
+    }
+
+    /**
+     * @param walk the walk before the action of the move
+     * @return the macro actions leading to a move stored with {@link #add(Move, int)}, which does not have to be stored
+     */
+    @NotNull List<MacroPlayer.MacroAction> macroActions(@NotNull Move move, int walk) {
+        List<MacroPlayer.MacroAction> result = new ArrayList<>();
+        if (move.action != null) {
+            result.add(new MacroPlayer.MacroAction(walk, move.action));
+        }
+        for (int pathId = move.parentPathId; pathId != NO_PATH; pathId = parents[pathId]) {
+            result.add(new MacroPlayer.MacroAction(walks[pathId], ACTIONS[actions[pathId]]));
+        }
+        return result.reversed();
+    }
+}
@@ -1,130 +1,154 @@
 package net.archiloque.voidstranger;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
+import java.io.PrintStream;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
 
 public class Player implements GroundEntity, UpEntity {
 
-    public static final Position DELTA_UP = new Position(0, -1);
-    public static final Position DELTA_DOWN = new Position(0, 1);
-    public static final Position DELTA_LEFT = new Position(-1, 0);
-    public static final Position DELTA_RIGHT = new Position(1, 0);
+    /**
+     * Receive the moves generated from a move.
+     */
+    @FunctionalInterface
+    interface MoveCallback {
+
+        /**
+         * @param move only valid during the call as it uses the layers of the {@link Board},
+         *             use {@link Board#keep(Move)} to keep it
+         * @return true to stop generating the moves
+         */
+        boolean accept(@NotNull Move move);
+    }
+
+    /**
+     * Keep the single move generated, the board being used only once.
+     */
+    private static final class SingleMove implements MoveCallback {
+
+        private @Nullable Move move;
+
+        @Override
+        public boolean accept(@NotNull Move move) {
+            this.move = move;
+            return true;
+        }
+    }
 
     public static Move simulate(Level level, Move move, Action action) {
-        AtomicReference<Move> result = new AtomicReference<>();
+        Board board = new Board(level);
+        SingleMove result = new SingleMove();
         switch (action) {
-            case UP -> {
-                moveUp(level, move, moveResult -> {
-                    result.set(moveResult);
-                    return false;
-                });
-            }
-            case DOWN -> {
-                moveDown(level, move, moveResult -> {
-                    result.set(moveResult);
-                    return false;
-                });
-            }
-            case LEFT -> {
-                moveLeft(level, move, moveResult -> {
-                    result.set(moveResult);
-                    return false;
-                });
-            }
-            case RIGHT -> {
-                moveRight(level, move, moveResult -> {
-                    result.set(moveResult);
-                    return false;
-                });
-            }
-            case ABSORB_GROUND, CREATE_GROUND, OPEN_CHEST -> {
-                action(level, move, moveResult -> {
-                    result.set(moveResult);
-                    return false;
-                });
-            }
+            case UP -> moveUp(level, board, move, result);
+            case DOWN -> moveDown(level, board, move, result);
+            case LEFT -> moveLeft(level, board, move, result);
+            case RIGHT -> moveRight(level, board, move, result);
+            case ABSORB_GROUND, CREATE_GROUND, OPEN_CHEST -> action(level, board, move, result);
             default -> throw new IllegalStateException("Unexpected value: " + action);
         }
-        Move resultMove = result.get();
-        if (resultMove == null) {
+        if (result.move == null) {
             throw new IllegalArgumentException("No result move, expected was " + action.name());
         }
-        Action lastAction = resultMove.actions.action();
+        Move resultMove = board.keep(result.move);
+        Action lastAction = Objects.requireNonNull(resultMove.action);
         if (!lastAction.equals(action)) {
             throw new IllegalArgumentException("Current move is " + lastAction.name() + " but is expected to be " + action.name());
         }
         return resultMove;
     }
 
-    public static void play(Preparer.PreparationResult preparationResult) {
+    /**
+     * @param targets    the objectives to search
+     * @param maxStates  the search stops after this number of states
+     * @param checkpoint where the search is saved periodically, null for no checkpoint
+     * @param resume     start from the last checkpoint if there is one
+     */
+    static @NotNull SearchResult play(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Set<Player.MoveStatus> targets,
+            @NotNull PrintStream out,
+            long maxStates,
+            @NotNull Metrics metrics,
+            @Nullable Checkpoint checkpoint,
+            boolean resume) {
         Deque<Move> currentMoves = new LinkedList<>();
-        Set<Move> knownMoves = new HashSet<>();
-        currentMoves.addFirst(preparationResult.move());
-        knownMoves.add(preparationResult.move());
+        DominanceVisitedStates knownMoves = new DominanceVisitedStates(preparationResult.level());
         Level level = preparationResult.level();
-
-        final AtomicReference<Boolean> reachedExit = new AtomicReference<>();
-        reachedExit.set(false);
-        final AtomicReference<Boolean> reachedRupee = new AtomicReference<>();
-        reachedRupee.set(false);
-        final AtomicReference<Boolean> reachedChest = new AtomicReference<>();
-        reachedChest.set(false);
+        Objectives objectives = new Objectives(preparationResult, targets);
+        PathStore paths = new PathStore();
+        int depth = 0;
+        long remainingInDepth = 1;
+        Checkpoint.Resumed resumed = ((checkpoint != null) && resume) ?
+                checkpoint.resume(currentMoves, knownMoves, paths, objectives) :
+                null;
+        if (resumed == null) {
+            currentMoves.addFirst(preparationResult.move());
+            knownMoves.add(preparationResult.move(), objectives.pending());
+        } else {
+            depth = resumed.depth();
+            remainingInDepth = resumed.remainingInDepth();
+        }
+        DeadStates deadStates = new DeadStates(level, preparationResult.move());
+        Board board = new Board(level);
+        metrics.depth(depth, remainingInDepth, knownMoves.size());
 
         while (!currentMoves.isEmpty()) {
+            if ((checkpoint != null) && checkpoint.due()) {
+                checkpoint.write(depth, remainingInDepth, currentMoves, knownMoves, paths, objectives);
+            }
+            if (remainingInDepth == 0) {
+                depth += 1;
+                remainingInDepth = currentMoves.size();
+                metrics.depth(depth, remainingInDepth, knownMoves.size());
+                board.clearKept();
+            }
+            remainingInDepth -= 1;
             Move currentMove = currentMoves.removeFirst();
-            if (nextMoves(level, currentMove, newMove -> {
-                if (knownMoves.add(newMove)) {
+            metrics.expanded(knownMoves.size());
+            if (nextMoves(level, board, currentMove, newMove -> {
+                if (deadStates.isDead(newMove, objectives.pending())) {
+                    return false;
+                }
+                boolean added = knownMoves.add(newMove, objectives.pending());
+                metrics.lookup(added);
+                if (added) {
                     MoveStatus moveStatus = moveStatus(newMove, level);
-                    switch (moveStatus) {
-                        case WIN -> {
-                            printPath(preparationResult, newMove, level, "");
-                            return true;
-                        }
-                        case RUPEE -> {
-                            if (!reachedRupee.get()) {
-                                printPath(preparationResult, newMove, level, "_rupee");
-                                reachedRupee.set(true);
-                            }
-                        }
-                        case CHEST -> {
-                            if (!reachedChest.get()) {
-                                printPath(preparationResult, newMove, level, "_chest");
-                                reachedChest.set(true);
-                            }
-                        }
-                        case EXIT -> {
-                            if (!reachedExit.get()) {
-                                printPath(preparationResult, newMove, level, "_exit");
-                                reachedExit.set(true);
-                            }
-                        }
-                        case LOOSE -> {
-                            currentMoves.addLast(newMove);
-                        }
+                    if (moveStatus == MoveStatus.LOOSE) {
+                        Move keptMove = board.keep(newMove);
+                        paths.add(keptMove);
+                        currentMoves.addLast(keptMove);
+                    } else if (objectives.reach(moveStatus, () -> paths.actions(newMove))) {
+                        return true;
                     }
-                    return false;
+                    return knownMoves.size() >= maxStates;
                 }
                 return false;
             })) {
-                return;
+                metrics.end(knownMoves.size());
+                out.println(knownMoves);
+                if (objectives.done()) {
+                    if (checkpoint != null) {
+                        checkpoint.delete();
+                    }
+                    return new SearchResult(objectives.outcome(), objectives.reached(), knownMoves.size());
+                }
+                if (checkpoint != null) {
+                    checkpoint.close();
+                }
+                out.println(" ### Aborted !");
+                return new SearchResult(SearchResult.Outcome.ABORTED, objectives.reached(), knownMoves.size());
             }
         }
-        System.out.println(" ### Fail !");
-    }
-
-    private static void printPath(@NotNull Preparer.PreparationResult preparationResult, @NotNull Move newMove, @NotNull Level level, @NotNull String suffix) {
-        try {
-            Printer.printPath(level, preparationResult.move(), newMove, suffix);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        metrics.end(knownMoves.size());
+        if (checkpoint != null) {
+            checkpoint.delete();
         }
+        out.println(knownMoves);
+        out.println(" ### Fail !");
+        return new SearchResult(SearchResult.Outcome.FAIL, objectives.reached(), knownMoves.size());
     }
 
-
     enum MoveStatus {
         WIN,
         LOOSE,
@@ -133,8 +157,8 @@ public class Player implements GroundEntity, UpEntity {
         EXIT,
     }
 
-    public static MoveStatus moveStatus(@NotNull Move move, @NotNull Level level) {
-        if (!(move.groundEntities[move.playerPositionIndex] == ENTITY_GROUND_DOWNSTAIR)) {
+    public static MoveStatus moveStatus(@NotNull MoveView move, @NotNull Level level) {
+        if (!(move.groundEntity(move.playerPositionIndex()) == ENTITY_GROUND_DOWNSTAIR)) {
             return MoveStatus.LOOSE;
         }
 
@@ -142,16 +166,17 @@ public class Player implements GroundEntity, UpEntity {
         boolean missingRupee = false;
 
         if (level.hasChest()) {
-            for (char entity : move.upEntities) {
-                if (entity == ENTITY_UP_CHEST_CLOSED) {
+            for (int entityIndex = 0; entityIndex < level.positions().length; entityIndex++) {
+                if (move.upEntity(entityIndex) == ENTITY_UP_CHEST_CLOSED) {
                     closedChest = true;
                     break;
                 }
             }
         }
 
-        for (boolean rupeeFound : move.rupeesFound) {
-            if (!rupeeFound) {
+        int rupeesNumber = level.rupeesIndexes().length;
+        for (int rupeeIndex = 0; rupeeIndex < rupeesNumber; rupeeIndex++) {
+            if (!move.rupeeFound(rupeeIndex)) {
                 missingRupee = true;
                 break;
             }
@@ -159,7 +184,7 @@ public class Player implements GroundEntity, UpEntity {
 
         if ((!closedChest) && (!missingRupee)) {
             return MoveStatus.WIN;
-        } else if ((move.rupeesFound.length > 0) && (!missingRupee)) {
+        } else if ((rupeesNumber > 0) && (!missingRupee)) {
             return MoveStatus.RUPEE;
         } else if (level.hasChest() && (!closedChest)) {
             return MoveStatus.CHEST;
@@ -168,227 +193,220 @@ public class Player implements GroundEntity, UpEntity {
         }
     }
 
-    private static boolean nextMoves(@NotNull Level level, @NotNull Move move, @NotNull Function<Move, Boolean> callback) {
+    static boolean nextMoves(@NotNull Level level, @NotNull Board board, @NotNull Move move, @NotNull MoveCallback callback) {
         return
-                moveUp(level, move, callback) ||
-                        moveDown(level, move, callback) ||
-                        moveLeft(level, move, callback) ||
-                        moveRight(level, move, callback) ||
-                        action(level, move, callback);
+                moveUp(level, board, move, callback) ||
+                        moveDown(level, board, move, callback) ||
+                        moveLeft(level, board, move, callback) ||
+                        moveRight(level, board, move, callback) ||
+                        action(level, board, move, callback);
     }
 
-    private static boolean moveRight(@NotNull Level level, @NotNull Move move, @NotNull Function<Move, Boolean> callback) {
-        return move(level, move, Direction.Right, DELTA_RIGHT, Action.RIGHT, callback);
+    private static boolean moveRight(@NotNull Level level, @NotNull Board board, @NotNull Move move, @NotNull MoveCallback callback) {
+        return move(level, board, move, Direction.Right, Action.RIGHT, callback);
     }
 
-    private static boolean moveLeft(@NotNull Level level, @NotNull Move move, @NotNull Function<Move, Boolean> callback) {
-        return move(level, move, Direction.Left, DELTA_LEFT, Action.LEFT, callback);
+    private static boolean moveLeft(@NotNull Level level, @NotNull Board board, @NotNull Move move, @NotNull MoveCallback callback) {
+        return move(level, board, move, Direction.Left, Action.LEFT, callback);
     }
 
-    private static boolean moveDown(@NotNull Level level, @NotNull Move move, @NotNull Function<Move, Boolean> callback) {
-        return move(level, move, Direction.Down, DELTA_DOWN, Action.DOWN, callback);
+    private static boolean moveDown(@NotNull Level level, @NotNull Board board, @NotNull Move move, @NotNull MoveCallback callback) {
+        return move(level, board, move, Direction.Down, Action.DOWN, callback);
     }
 
-    private static boolean moveUp(@NotNull Level level, @NotNull Move move, @NotNull Function<Move, Boolean> callback) {
-        return move(level, move, Direction.Up, DELTA_UP, Action.UP, callback);
+    private static boolean moveUp(@NotNull Level level, @NotNull Board board, @NotNull Move move, @NotNull MoveCallback callback) {
+        return move(level, board, move, Direction.Up, Action.UP, callback);
     }
 
-    private static boolean action(@NotNull Level level, @NotNull Move initialMove, @NotNull Function<Move, Boolean> callback) {
-        Position delta = initialMove.playerDirection.delta;
-        Position targetPosition = level.positions()[initialMove.playerPositionIndex].add(delta);
-        int targetPositionIndex = level.positionIndex(targetPosition);
+    private static boolean action(@NotNull Level level, @NotNull Board board, @NotNull Move initialMove, @NotNull MoveCallback callback) {
+        int targetPositionIndex = level.neighbor(initialMove.playerPositionIndex, initialMove.playerDirection);
         if (targetPositionIndex < 0) {
             return false;
         }
 
-        char upTargetEntity = initialMove.upEntities[targetPositionIndex];
+        char upTargetEntity = initialMove.upEntity(targetPositionIndex);
         switch (upTargetEntity) {
             case ENTITY_UP_BOULDER, ENTITY_UP_CHEST_OPEN, ENTITY_UP_ENEMY_BASIC_FACING_UP, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
                 return false;
             }
             case ENTITY_UP_CHEST_CLOSED -> {
-                return actionChestClosed(initialMove, targetPositionIndex, initialMove.playerPositionIndex, callback);
+                return actionChestClosed(level, board, initialMove, targetPositionIndex, initialMove.playerPositionIndex, callback);
             }
         }
 
-        char groundTargetEntity = initialMove.groundEntities[targetPositionIndex];
+        char groundTargetEntity = initialMove.groundEntity(targetPositionIndex);
         switch (groundTargetEntity) {
             case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
-                return actionAbsorbGround(level, initialMove, targetPositionIndex, initialMove.playerPositionIndex, callback);
+                return actionAbsorbGround(level, board, initialMove, targetPositionIndex, initialMove.playerPositionIndex, callback);
             }
             case ENTITY_GROUND_HOLE -> {
-                return actionCreateGround(level, initialMove, targetPositionIndex, initialMove.playerPositionIndex, callback);
+                return actionCreateGround(level, board, initialMove, targetPositionIndex, initialMove.playerPositionIndex, callback);
             }
         }
         throw new IllegalStateException("Unexpected value: [" + upTargetEntity + "] [" + groundTargetEntity + "]");
     }
 
     private static boolean actionCreateGround(@NotNull Level level,
+                                              @NotNull Board board,
                                               @NotNull Move initialMove,
                                               int targetPositionIndex,
                                               int playerPositionIndex,
-                                              @NotNull Function<Move, Boolean> callback) {
+                                              @NotNull MoveCallback callback) {
         if (initialMove.playerState == Move.PlayerState.EMPTY) {
             return false;
         }
-        char[] newGroundEntities = initialMove.groundEntities.clone();
-        char[] newUpEntities = initialMove.upEntities.clone();
-        newGroundEntities[targetPositionIndex] = initialMove.playerState.entity;
-        postMove(level, initialMove, playerPositionIndex, newGroundEntities, newUpEntities, -1);
-        if (UpEntity.isEnemy(newUpEntities[playerPositionIndex])) {
+        board.reset(initialMove);
+        board.setGroundEntity(targetPositionIndex, initialMove.playerState.entity);
+        postMove(level, initialMove, playerPositionIndex, board, -1);
+        if (UpEntity.isEnemy(board.upEntity(playerPositionIndex))) {
             return false;
         }
-        Move newMove = new Move(
+        Move newMove = board.toMove(
                 initialMove.playerPositionIndex,
                 initialMove.playerDirection,
                 Move.PlayerState.EMPTY,
-                newGroundEntities,
-                newUpEntities,
                 initialMove.rupeesFound,
-                new Move.ActionLinkedElement(Action.CREATE_GROUND, initialMove.actions)
+                Action.CREATE_GROUND,
+                initialMove.pathId
         );
-        return callback.apply(newMove);
+        return callback.accept(newMove);
 
     }
 
     private static boolean actionAbsorbGround(
             @NotNull Level level,
+            @NotNull Board board,
             @NotNull Move initialMove,
             int targetPositionIndex,
             int playerPositionIndex,
-            @NotNull Function<Move, Boolean> callback) {
+            @NotNull MoveCallback callback) {
         if (initialMove.playerState != Move.PlayerState.EMPTY) {
             return false;
         }
-        char[] newGroundEntities = initialMove.groundEntities.clone();
-        char[] newUpEntities = initialMove.upEntities.clone();
-        boolean[] newRupeesFound = initialMove.rupeesFound;
+        board.reset(initialMove);
+        long newRupeesFound = initialMove.rupeesFound;
         int rupeeIndex = Arrays.binarySearch(level.rupeesIndexes(), targetPositionIndex);
-        if ((rupeeIndex >= 0) && (!newRupeesFound[rupeeIndex])) {
-            newRupeesFound = newRupeesFound.clone();
-            newRupeesFound[rupeeIndex] = true;
+        if (rupeeIndex >= 0) {
+            newRupeesFound |= 1L << rupeeIndex;
         }
-        newGroundEntities[targetPositionIndex] = ENTITY_GROUND_HOLE;
-        postMove(level, initialMove, playerPositionIndex, newGroundEntities, newUpEntities, -1);
-        if (UpEntity.isEnemy(newUpEntities[playerPositionIndex])) {
+        board.setGroundEntity(targetPositionIndex, ENTITY_GROUND_HOLE);
+        postMove(level, initialMove, playerPositionIndex, board, -1);
+        if (UpEntity.isEnemy(board.upEntity(playerPositionIndex))) {
             return false;
         }
-        Move newMove = new Move(
+        Move newMove = board.toMove(
                 initialMove.playerPositionIndex,
                 initialMove.playerDirection,
-                Move.fromGroundEntity(initialMove.groundEntities[targetPositionIndex]),
-                newGroundEntities,
-                newUpEntities,
+                Move.fromGroundEntity(initialMove.groundEntity(targetPositionIndex)),
                 newRupeesFound,
-                new Move.ActionLinkedElement(Action.ABSORB_GROUND, initialMove.actions)
+                Action.ABSORB_GROUND,
+                initialMove.pathId
         );
-        return callback.apply(newMove);
+        return callback.accept(newMove);
 
     }
 
     private static boolean actionChestClosed(
+            @NotNull Level level,
+            @NotNull Board board,
             @NotNull Move initialMove,
             int targetPositionIndex,
             int initialPositionIndex,
-            @NotNull Function<Move, Boolean> callback) {
+            @NotNull MoveCallback callback) {
         if (!initialMove.playerDirection.equals(Direction.Up)) {
             return false;
         } else {
-            char[] newGroundEntities = initialMove.groundEntities.clone();
-            char[] newUpEntities = initialMove.upEntities.clone();
-            newUpEntities[targetPositionIndex] = ENTITY_UP_CHEST_OPEN;
-            if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+            board.reset(initialMove);
+            board.setUpEntity(targetPositionIndex, ENTITY_UP_CHEST_OPEN);
+            if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                 return false;
             }
-            Move newMove = new Move(
+            Move newMove = board.toMove(
                     initialMove.playerPositionIndex,
                     initialMove.playerDirection,
                     initialMove.playerState,
-                    newGroundEntities,
-                    newUpEntities,
                     initialMove.rupeesFound,
-                    new Move.ActionLinkedElement(Action.OPEN_CHEST, initialMove.actions)
+                    Action.OPEN_CHEST,
+                    initialMove.pathId
             );
-            return callback.apply(newMove);
+            return callback.accept(newMove);
         }
     }
 
     private static boolean move(
             @NotNull Level level,
+            @NotNull Board board,
             @NotNull Move initialMove,
             @NotNull Direction direction,
-            @NotNull Position delta,
             @NotNull Action action,
-            @NotNull Function<Move, Boolean> callback) {
+            @NotNull MoveCallback callback) {
         int initialPositionIndex = initialMove.playerPositionIndex;
-        char[] newGroundEntities = initialMove.groundEntities.clone();
-        char[] newUpEntities = initialMove.upEntities.clone();
 
-        Position targetPosition = level.positions()[initialMove.playerPositionIndex].add(delta);
-        int targetPositionIndex = level.positionIndex(targetPosition);
+        int targetPositionIndex = level.neighbor(initialMove.playerPositionIndex, direction);
         if (targetPositionIndex < 0) {
-            postMove(level, initialMove, initialMove.playerPositionIndex, newGroundEntities, newUpEntities, -1);
-            if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+            board.reset(initialMove);
+            postMove(level, initialMove, initialMove.playerPositionIndex, board, -1);
+            if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                 return false;
             }
 
             // Moving toward a wall: just change your direction
-            Move newMove = new Move(
+            Move newMove = board.toMove(
                     initialMove.playerPositionIndex,
                     direction,
                     initialMove.playerState,
-                    newGroundEntities,
-                    newUpEntities,
                     initialMove.rupeesFound,
-                    new Move.ActionLinkedElement(action, initialMove.actions)
+                    action,
+                    initialMove.pathId
             );
-            return callback.apply(newMove);
+            return callback.accept(newMove);
         }
-        char targetUpEntity = initialMove.upEntities[targetPositionIndex];
+        char targetUpEntity = initialMove.upEntity(targetPositionIndex);
 
         switch (targetUpEntity) {
             case ENTITY_UP_BOULDER -> {
-                return moveBoulder(level, initialMove, direction, delta, action, targetPosition, targetPositionIndex, newGroundEntities, newUpEntities, initialPositionIndex, callback);
+                board.reset(initialMove);
+                return moveBoulder(level, initialMove, direction, action, targetPositionIndex, board, initialPositionIndex, callback);
             }
             case ENTITY_UP_CHEST_OPEN, ENTITY_UP_CHEST_CLOSED -> {
-                postMove(level, initialMove, initialMove.playerPositionIndex, newGroundEntities, newUpEntities, -1);
-                if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+                board.reset(initialMove);
+                postMove(level, initialMove, initialMove.playerPositionIndex, board, -1);
+                if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                     return false;
                 }
-                Move newMove = new Move(
+                Move newMove = board.toMove(
                         initialMove.playerPositionIndex,
                         direction,
                         initialMove.playerState,
-                        newGroundEntities,
-                        newUpEntities,
                         initialMove.rupeesFound,
-                        new Move.ActionLinkedElement(action, initialMove.actions)
+                        action,
+                        initialMove.pathId
                 );
-                return callback.apply(newMove);
+                return callback.accept(newMove);
 
             }
             case ENTITY_UP_ENEMY_BASIC_FACING_UP, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
                 return false;
             }
         }
-        char targetGroundEntity = initialMove.groundEntities[targetPositionIndex];
+        char targetGroundEntity = initialMove.groundEntity(targetPositionIndex);
         switch (targetGroundEntity) {
             case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
-                postMove(level, initialMove, targetPositionIndex, newGroundEntities, newUpEntities, -1);
-                if (UpEntity.isEnemy(newUpEntities[targetPositionIndex]) || UpEntity.isEnemy(initialMove.upEntities[targetPositionIndex])) {
+                board.reset(initialMove);
+                postMove(level, initialMove, targetPositionIndex, board, -1);
+                if (UpEntity.isEnemy(board.upEntity(targetPositionIndex)) || UpEntity.isEnemy(initialMove.upEntity(targetPositionIndex))) {
                     return false;
                 }
 
-                Move newMove = new Move(
-                        Arrays.binarySearch(level.positions(), targetPosition),
+                Move newMove = board.toMove(
+                        targetPositionIndex,
                         direction,
                         initialMove.playerState,
-                        newGroundEntities,
-                        newUpEntities,
                         initialMove.rupeesFound,
-                        new Move.ActionLinkedElement(action, initialMove.actions)
+                        action,
+                        initialMove.pathId
                 );
-                return callback.apply(newMove);
+                return callback.accept(newMove);
             }
             case ENTITY_GROUND_HOLE -> {
                 return false;
@@ -401,142 +419,137 @@ public class Player implements GroundEntity, UpEntity {
             @NotNull Level level,
             @NotNull Move initialMove,
             @NotNull Direction direction,
-            @NotNull Position delta,
             @NotNull Action action,
-            @NotNull Position targetPosition,
             int targetPositionIndex,
-            char @NotNull [] newGroundEntities,
-            char @NotNull [] newUpEntities,
+            @NotNull Board board,
             int initialPositionIndex,
-            @NotNull Function<Move, Boolean> callback) {
-        Position beyondPosition = targetPosition.add(delta);
-        int beyondPositionIndex = level.positionIndex(beyondPosition);
+            @NotNull MoveCallback callback) {
+        int beyondPositionIndex = level.neighbor(targetPositionIndex, direction);
         if (beyondPositionIndex > 0) {
-            char beyondPositionUpEntity = initialMove.upEntities[beyondPositionIndex];
+            char beyondPositionUpEntity = initialMove.upEntity(beyondPositionIndex);
             switch (beyondPositionUpEntity) {
                 case ENTITY_UP_BOULDER, ENTITY_UP_CHEST_OPEN, ENTITY_UP_CHEST_CLOSED -> {
-                    postMove(level, initialMove, initialMove.playerPositionIndex, newGroundEntities, newUpEntities, beyondPositionIndex);
-                    if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+                    postMove(level, initialMove, initialMove.playerPositionIndex, board, beyondPositionIndex);
+                    if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                         return false;
                     }
 
-                    Move newMove = new Move(
+                    Move newMove = board.toMove(
                             initialMove.playerPositionIndex,
                             direction,
                             initialMove.playerState,
-                            newGroundEntities,
-                            newUpEntities,
                             initialMove.rupeesFound,
-                            new Move.ActionLinkedElement(action, initialMove.actions)
+                            action,
+                            initialMove.pathId
                     );
-                    return callback.apply(newMove);
+                    return callback.accept(newMove);
                 }
                 case ENTITY_UP_ENEMY_BASIC_FACING_UP, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT -> {
-                    newUpEntities[targetPositionIndex] = ENTITY_UP_EMPTY;
-                    newUpEntities[beyondPositionIndex] = ENTITY_UP_BOULDER;
-                    postMove(level, initialMove, targetPositionIndex, newGroundEntities, newUpEntities, beyondPositionIndex);
-                    if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+                    board.setUpEntity(targetPositionIndex, ENTITY_UP_EMPTY);
+                    board.setUpEntity(beyondPositionIndex, ENTITY_UP_BOULDER);
+                    postMove(level, initialMove, targetPositionIndex, board, beyondPositionIndex);
+                    if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                         return false;
                     }
 
-                    Move newMove = new Move(
+                    Move newMove = board.toMove(
                             initialMove.playerPositionIndex,
                             direction,
                             initialMove.playerState,
-                            newGroundEntities,
-                            newUpEntities,
                             initialMove.rupeesFound,
-                            new Move.ActionLinkedElement(action, initialMove.actions)
+                            action,
+                            initialMove.pathId
                     );
-                    return callback.apply(newMove);
+                    return callback.accept(newMove);
                 }
             }
-            char beyondPositionGroundEntity = initialMove.groundEntities[beyondPositionIndex];
+            char beyondPositionGroundEntity = initialMove.groundEntity(beyondPositionIndex);
             switch (beyondPositionGroundEntity) {
                 case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
-                    newUpEntities[targetPositionIndex] = ENTITY_UP_EMPTY;
-                    newUpEntities[beyondPositionIndex] = ENTITY_UP_BOULDER;
-                    postMove(level, initialMove, targetPositionIndex, newGroundEntities, newUpEntities, beyondPositionIndex);
-                    if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+                    board.setUpEntity(targetPositionIndex, ENTITY_UP_EMPTY);
+                    board.setUpEntity(beyondPositionIndex, ENTITY_UP_BOULDER);
+                    postMove(level, initialMove, targetPositionIndex, board, beyondPositionIndex);
+                    if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                         return false;
                     }
 
-                    if(initialMove.groundEntities[targetPositionIndex] == ENTITY_GROUND_GLASS) {
-                        newGroundEntities[targetPositionIndex] = ENTITY_GROUND_HOLE;
+                    if(initialMove.groundEntity(targetPositionIndex) == ENTITY_GROUND_GLASS) {
+                        board.setGroundEntity(targetPositionIndex, ENTITY_GROUND_HOLE);
                     }
 
-                    Move newMove = new Move(
+                    Move newMove = board.toMove(
                             initialMove.playerPositionIndex,
                             direction,
                             initialMove.playerState,
-                            newGroundEntities,
-                            newUpEntities,
                             initialMove.rupeesFound,
-                            new Move.ActionLinkedElement(action, initialMove.actions)
+                            action,
+                            initialMove.pathId
                     );
-                    return callback.apply(newMove);
+                    return callback.accept(newMove);
                 }
                 case ENTITY_GROUND_HOLE -> {
-                    newUpEntities[targetPositionIndex] = ENTITY_UP_EMPTY;
-                    postMove(level, initialMove, targetPositionIndex, newGroundEntities, newUpEntities, -1);
-                    if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+                    board.setUpEntity(targetPositionIndex, ENTITY_UP_EMPTY);
+                    postMove(level, initialMove, targetPositionIndex, board, -1);
+                    if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                         return false;
                     }
 
-                    if(initialMove.groundEntities[targetPositionIndex] == ENTITY_GROUND_GLASS) {
-                        newGroundEntities[targetPositionIndex] = ENTITY_GROUND_HOLE;
+                    if(initialMove.groundEntity(targetPositionIndex) == ENTITY_GROUND_GLASS) {
+                        board.setGroundEntity(targetPositionIndex, ENTITY_GROUND_HOLE);
                     }
 
-                    Move newMove = new Move(
+                    Move newMove = board.toMove(
                             initialMove.playerPositionIndex,
                             direction,
                             initialMove.playerState,
-                            newGroundEntities,
-                            newUpEntities,
                             initialMove.rupeesFound,
-                            new Move.ActionLinkedElement(action, initialMove.actions)
+                            action,
+                            initialMove.pathId
                     );
-                    return callback.apply(newMove);
+                    return callback.accept(newMove);
                 }
             }
         } else {
-            postMove(level, initialMove, initialMove.playerPositionIndex, newGroundEntities, newUpEntities, beyondPositionIndex);
-            if (UpEntity.isEnemy(newUpEntities[initialPositionIndex])) {
+            postMove(level, initialMove, initialMove.playerPositionIndex, board, beyondPositionIndex);
+            if (UpEntity.isEnemy(board.upEntity(initialPositionIndex))) {
                 return false;
             }
-            Move newMove = new Move(
+            Move newMove = board.toMove(
                     initialMove.playerPositionIndex,
                     direction,
                     initialMove.playerState,
-                    newGroundEntities,
-                    newUpEntities,
                     initialMove.rupeesFound,
-                    new Move.ActionLinkedElement(action, initialMove.actions)
+                    action,
+                    initialMove.pathId
             );
-            return callback.apply(newMove);
+            return callback.accept(newMove);
         }
         return false;
     }
 
-    private static void postMove(
+    static void postMove(
             @NotNull Level level,
             @NotNull Move initialMove,
             int newPlayerPositionIndex,
-            char @NotNull [] newGroundEntities,
-            char @NotNull [] newUpEntities,
+            @NotNull Board board,
             int crushedEnemyIndex
     ) {
-        for (int currentEntityIndex = 0; currentEntityIndex < newUpEntities.length; currentEntityIndex++) {
-            char currentUpEntity = initialMove.upEntities[currentEntityIndex];
+        // The cells are updated in index order, the glass under the player breaking when its cell is reached
+        boolean breakGlass = initialMove.groundEntity(initialMove.playerPositionIndex) == ENTITY_GROUND_GLASS;
+        for (int currentEntityIndex : initialMove.enemies) {
+            if (breakGlass && (currentEntityIndex > initialMove.playerPositionIndex)) {
+                board.setGroundEntity(initialMove.playerPositionIndex, ENTITY_GROUND_HOLE);
+                breakGlass = false;
+            }
+            char currentUpEntity = initialMove.upEntity(currentEntityIndex);
             switch (currentUpEntity) {
                 case ENTITY_UP_ENEMY_BASIC_FACING_DOWN -> {
                     if (currentEntityIndex != crushedEnemyIndex) {
                         postMoveBasicEnemy(
                                 level,
-                                newGroundEntities,
-                                newUpEntities,
+                                board,
                                 currentEntityIndex,
-                                DELTA_DOWN,
+                                Direction.Down,
                                 ENTITY_UP_ENEMY_BASIC_FACING_DOWN,
                                 ENTITY_UP_ENEMY_BASIC_FACING_UP);
                     }
@@ -545,10 +558,9 @@ public class Player implements GroundEntity, UpEntity {
                     if (currentEntityIndex != crushedEnemyIndex) {
                         postMoveBasicEnemy(
                                 level,
-                                newGroundEntities,
-                                newUpEntities,
+                                board,
                                 currentEntityIndex,
-                                DELTA_LEFT,
+                                Direction.Left,
                                 ENTITY_UP_ENEMY_BASIC_FACING_LEFT,
                                 ENTITY_UP_ENEMY_BASIC_FACING_RIGHT);
                     }
@@ -557,10 +569,9 @@ public class Player implements GroundEntity, UpEntity {
                     if (currentEntityIndex != crushedEnemyIndex) {
                         postMoveBasicEnemy(
                                 level,
-                                newGroundEntities,
-                                newUpEntities,
+                                board,
                                 currentEntityIndex,
-                                DELTA_RIGHT,
+                                Direction.Right,
                                 ENTITY_UP_ENEMY_BASIC_FACING_RIGHT,
                                 ENTITY_UP_ENEMY_BASIC_FACING_LEFT);
                     }
@@ -568,10 +579,9 @@ public class Player implements GroundEntity, UpEntity {
                 case ENTITY_UP_ENEMY_BASIC_FACING_UP -> {
                     if (currentEntityIndex != crushedEnemyIndex) {
                         postMoveBasicEnemy(level,
-                                newGroundEntities,
-                                newUpEntities,
+                                board,
                                 currentEntityIndex,
-                                DELTA_UP,
+                                Direction.Up,
                                 ENTITY_UP_ENEMY_BASIC_FACING_UP,
                                 ENTITY_UP_ENEMY_BASIC_FACING_DOWN);
                     }
@@ -580,71 +590,62 @@ public class Player implements GroundEntity, UpEntity {
                     postMoveSeekerEnemy(
                             level,
                             newPlayerPositionIndex,
-                            newGroundEntities,
-                            newUpEntities,
+                            board,
                             currentEntityIndex
                     );
                 }
             }
-            char currentGroundEntity = initialMove.groundEntities[currentEntityIndex];
-            switch (currentGroundEntity) {
-                case ENTITY_GROUND_GLASS -> {
-                    if (currentEntityIndex == initialMove.playerPositionIndex) {
-                        newGroundEntities[currentEntityIndex] = ENTITY_GROUND_HOLE;
-                    }
-                }
-            }
+        }
+        if (breakGlass) {
+            board.setGroundEntity(initialMove.playerPositionIndex, ENTITY_GROUND_HOLE);
         }
     }
 
     private static void postMoveSeekerEnemy(
             @NotNull Level level,
             int playerPositionIndex,
-            char @NotNull [] groundEntities,
-            char @NotNull [] upEntities,
+            @NotNull Board board,
             int currentEntityIndex) {
         // Is the played in the same line or column than the enemy
         Position playerPosition = level.positions()[playerPositionIndex];
         Position enemyPosition = level.positions()[currentEntityIndex];
-        Position delta;
+        Direction direction;
         if (playerPosition.line() == enemyPosition.line()) {
-            delta = (playerPosition.column() > enemyPosition.column()) ? DELTA_RIGHT : DELTA_LEFT;
+            direction = (playerPosition.column() > enemyPosition.column()) ? Direction.Right : Direction.Left;
         } else if (playerPosition.column() == enemyPosition.column()) {
-            delta = (playerPosition.line() > enemyPosition.line()) ? DELTA_DOWN : DELTA_UP;
+            direction = (playerPosition.line() > enemyPosition.line()) ? Direction.Down : Direction.Up;
         } else {
             return;
         }
 
         // Check if the player is visible
-        Position currentlyCheckedPosition = enemyPosition.add(delta);
-        while (!currentlyCheckedPosition.equals(playerPosition)) {
-            int currentlyCheckedPositionIndex = level.positionIndex(currentlyCheckedPosition);
+        int currentlyCheckedPositionIndex = level.neighbor(currentEntityIndex, direction);
+        while (currentlyCheckedPositionIndex != playerPositionIndex) {
             if (currentlyCheckedPositionIndex < 0) {
                 return;
             }
-            if (upEntities[currentlyCheckedPositionIndex] != ENTITY_UP_EMPTY) {
+            if (board.upEntity(currentlyCheckedPositionIndex) != ENTITY_UP_EMPTY) {
                 return;
             }
-            currentlyCheckedPosition = currentlyCheckedPosition.add(delta);
+            currentlyCheckedPositionIndex = level.neighbor(currentlyCheckedPositionIndex, direction);
         }
 
         // Move the enemy
-        Position targetPosition = enemyPosition.add(delta);
-        int targetEntityIndex = level.positionIndex(targetPosition);
-        char currentGroundEntity = groundEntities[targetEntityIndex];
+        int targetEntityIndex = level.neighbor(currentEntityIndex, direction);
+        char currentGroundEntity = board.groundEntity(targetEntityIndex);
         switch (currentGroundEntity) {
             case ENTITY_GROUND_HOLE -> {
-                upEntities[currentEntityIndex] = ENTITY_UP_EMPTY;
-                if (groundEntities[currentEntityIndex] == ENTITY_GROUND_GLASS) {
-                    groundEntities[currentEntityIndex] = ENTITY_GROUND_HOLE;
+                board.setUpEntity(currentEntityIndex, ENTITY_UP_EMPTY);
+                if (board.groundEntity(currentEntityIndex) == ENTITY_GROUND_GLASS) {
+                    board.setGroundEntity(currentEntityIndex, ENTITY_GROUND_HOLE);
                 }
                 return;
             }
             case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
-                upEntities[currentEntityIndex] = ENTITY_UP_EMPTY;
-                upEntities[targetEntityIndex] = ENTITY_UP_ENEMY_SEEKER;
-                if (groundEntities[currentEntityIndex] == ENTITY_GROUND_GLASS) {
-                    groundEntities[currentEntityIndex] = ENTITY_GROUND_HOLE;
+                board.setUpEntity(currentEntityIndex, ENTITY_UP_EMPTY);
+                board.setUpEntity(targetEntityIndex, ENTITY_UP_ENEMY_SEEKER);
+                if (board.groundEntity(currentEntityIndex) == ENTITY_GROUND_GLASS) {
+                    board.setGroundEntity(currentEntityIndex, ENTITY_GROUND_HOLE);
                 }
                 return;
             }
@@ -654,34 +655,32 @@ public class Player implements GroundEntity, UpEntity {
 
     private static void postMoveBasicEnemy(
             @NotNull Level level,
-            char @NotNull [] newGroundEntities,
-            char @NotNull [] newUpEntities,
+            @NotNull Board board,
             int currentEntityIndex,
-            @NotNull Position delta,
+            @NotNull Direction direction,
             char currentEntity,
             char oppositeEnemy) {
-        Position targetPosition = level.positions()[currentEntityIndex].add(delta);
-        int targetPositionIndex = level.positionIndex(targetPosition);
+        int targetPositionIndex = level.neighbor(currentEntityIndex, direction);
         if (targetPositionIndex < 0) {
-            newUpEntities[currentEntityIndex] = oppositeEnemy;
+            board.setUpEntity(currentEntityIndex, oppositeEnemy);
         } else {
-            char targetUpEntity = newUpEntities[targetPositionIndex];
+            char targetUpEntity = board.upEntity(targetPositionIndex);
             switch (targetUpEntity) {
                 case ENTITY_UP_BOULDER, ENTITY_UP_CHEST_CLOSED, ENTITY_UP_CHEST_OPEN, ENTITY_UP_ENEMY_BASIC_FACING_DOWN, ENTITY_UP_ENEMY_BASIC_FACING_LEFT, ENTITY_UP_ENEMY_BASIC_FACING_RIGHT, ENTITY_UP_ENEMY_BASIC_FACING_UP -> {
-                    newUpEntities[currentEntityIndex] = oppositeEnemy;
+                    board.setUpEntity(currentEntityIndex, oppositeEnemy);
                     return;
                 }
             }
-            char targetGroundEntity = newGroundEntities[targetPositionIndex];
+            char targetGroundEntity = board.groundEntity(targetPositionIndex);
             switch (targetGroundEntity) {
                 case ENTITY_GROUND_HOLE -> {
-                    newUpEntities[currentEntityIndex] = oppositeEnemy;
+                    board.setUpEntity(currentEntityIndex, oppositeEnemy);
                 }
                 case ENTITY_GROUND_GROUND, ENTITY_GROUND_DOWNSTAIR, ENTITY_GROUND_GLASS -> {
-                    newUpEntities[currentEntityIndex] = ENTITY_UP_EMPTY;
-                    newUpEntities[targetPositionIndex] = currentEntity;
-                    if (newGroundEntities[currentEntityIndex] == ENTITY_GROUND_GLASS) {
-                        newGroundEntities[currentEntityIndex] = ENTITY_GROUND_HOLE;
+                    board.setUpEntity(currentEntityIndex, ENTITY_UP_EMPTY);
+                    board.setUpEntity(targetPositionIndex, currentEntity);
+                    if (board.groundEntity(currentEntityIndex) == ENTITY_GROUND_GLASS) {
+                        board.setGroundEntity(currentEntityIndex, ENTITY_GROUND_HOLE);
                     }
                 }
             }
@@ -3,164 +3,149 @@ package net.archiloque.voidstranger;
 import com.google.gson.Gson;
 import net.archiloque.voidstranger.importer.*;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 public class Preparer implements UpEntity, GroundEntity {
 
     public record PreparationResult(@NotNull Level level, @NotNull Move move) {
     }
 
+    /**
+     * Prepare a level from its simplified export or from its LDtk level file.
+     */
     public static PreparationResult prepareLevel(@NotNull File levelFile) throws IOException {
-        Gson gson = new Gson();
-
-        ImporterLevel importedImporterLevel = gson.fromJson(Files.readString(levelFile.toPath()), ImporterLevel.class);
-
-        int height = importedImporterLevel.getAllEntities().mapToInt(Preparer::getLine).max().getAsInt();
-        int width = importedImporterLevel.getAllEntities().mapToInt(Preparer::getColumn).max().getAsInt();
+        if (levelFile.getName().endsWith(LdtkImporter.LEVEL_EXTENSION)) {
+            return prepareLevel(LdtkImporter.readLevel(levelFile));
+        } else {
+            Gson gson = new Gson();
+            return prepareLevel(gson.fromJson(Files.readString(levelFile.toPath()), ImporterLevel.class));
+        }
+    }
 
+    public static PreparationResult prepareLevel(@NotNull ImporterLevel importedImporterLevel) {
         ImporterEntities entities = importedImporterLevel.entities();
+        EntitiesGrid entitiesGrid = new EntitiesGrid(entities);
+        int height = entitiesGrid.maxLine;
+        int width = entitiesGrid.maxColumn;
+
         ImporterEntityWithDirection importedPlayerPosition = entities.playerStartPosition().getFirst();
-        Position playerPosition = getPosition(importedPlayerPosition);
 
-        Position[] entitiesPosition = importedImporterLevel.getGroundEntities().
-                map(entity -> new Position(getColumn(entity), getLine(entity))).
-                sorted().
-                toArray(Position[]::new);
+        Position[] entitiesPosition = entitiesGrid.cellsPositions();
 
-        int[] rupeesIndexes = getRupees(importedImporterLevel, entitiesPosition);
+        int[] rupeesIndexes = getRupees(entities, entitiesGrid);
+        if (rupeesIndexes.length > Long.SIZE) {
+            throw new IllegalArgumentException("Too many rupees: " + rupeesIndexes.length);
+        }
 
-        char[] groundEntities = new char[entitiesPosition.length];
-        char[] upEntities = new char[entitiesPosition.length];
+        long[] groundLayer = Layers.newGroundLayer(entitiesPosition.length);
+        long[] upLayer = Layers.newUpLayer(entitiesPosition.length);
+        List<Integer> chestsIndexes = new ArrayList<>();
         for (int entityIndex = 0; entityIndex < entitiesPosition.length; entityIndex++) {
-            groundEntities[entityIndex] = getGroundEntity(entitiesPosition[entityIndex], importedImporterLevel);
-            upEntities[entityIndex] = getUpEntity(entitiesPosition[entityIndex], importedImporterLevel);
-        }
-        boolean hasChest = false;
-        for (char upEntity : upEntities) {
+            Layers.setGroundEntity(groundLayer, entityIndex, entitiesGrid.groundEntity(entityIndex));
+            char upEntity = entitiesGrid.upEntity(entityIndex);
+            Layers.setUpEntity(upLayer, entityIndex, upEntity);
             if (upEntity == ENTITY_UP_CHEST_CLOSED) {
-                hasChest = true;
-                break;
+                chestsIndexes.add(entityIndex);
             }
         }
 
+        if (chestsIndexes.size() > Long.SIZE) {
+            throw new IllegalArgumentException("Too many chests: " + chestsIndexes.size());
+        }
+
+        Zobrist zobrist = Zobrist.create(entitiesPosition.length, rupeesIndexes.length);
+        int[] neighbors = getNeighbors(entitiesPosition, entitiesGrid);
         Level level = new Level(
                 importedImporterLevel.identifier(),
                 width,
                 height,
                 entitiesPosition,
                 rupeesIndexes,
-                hasChest
+                !chestsIndexes.isEmpty(),
+                zobrist,
+                neighbors,
+                chestsIndexes.stream().mapToInt(Integer::intValue).toArray(),
+                getFrozenBoulderCells(neighbors)
                 );
 
-        Move move = new Move(
-                Arrays.binarySearch(entitiesPosition, playerPosition),
-                importedPlayerPosition.getDirection(),
-                Move.PlayerState.EMPTY,
-                groundEntities,
-                upEntities,
-                new boolean[rupeesIndexes.length],
-                null);
-        return new PreparationResult(level, move);
-    }
-
-    private static int[] getRupees(@NotNull ImporterLevel importedImporterLevel,
-                                   @NotNull Position[] entitiesPosition) {
-        List<SimpleImporterEntity> rupeesEntities = importedImporterLevel.entities().rupee();
-        if(rupeesEntities == null) {
-            return new int[0];
-        } else {
-            return rupeesEntities.stream().mapToInt(simpleImporterEntity ->
-                    Arrays.binarySearch(entitiesPosition, getPosition(simpleImporterEntity))
-            ).toArray();
-        }
-    }
-
-    @NotNull
-    private static Position getPosition(@NotNull ImporterEntity importerEntity) {
-        return new Position(getColumn(importerEntity), getLine(importerEntity));
-    }
-
-    private static int getColumn(ImporterEntity importerEntity) {
-        return importerEntity.getX() / 16;
+        int playerPositionIndex = entitiesGrid.cellIndex(importedPlayerPosition);
+        return new PreparationResult(level, initialMove(level, playerPositionIndex, importedPlayerPosition.getDirection(), groundLayer, upLayer));
     }
 
-    private static int getLine(ImporterEntity importerEntity) {
-        return importerEntity.getY() / 16;
+    /**
+     * @return the move at the start of a level
+     */
+    static @NotNull Move initialMove(
+            @NotNull Level level,
+            int playerPositionIndex,
+            @NotNull Direction playerDirection,
+            long @NotNull [] groundLayer,
+            long @NotNull [] upLayer) {
+        int size = level.positions().length;
+        long layersHash = level.zobrist().layersHash(groundLayer, upLayer, size);
+        return new Move(
+                playerPositionIndex,
+                playerDirection,
+                Move.PlayerState.EMPTY,
+                groundLayer,
+                upLayer,
+                Layers.enemies(upLayer, size),
+                0L,
+                layersHash,
+                level.zobrist().moveHash(layersHash, playerPositionIndex, playerDirection, Move.PlayerState.EMPTY, 0L),
+                null,
+                PathStore.NO_PATH);
     }
 
-
-    private static char getUpEntity(@NotNull Position position, @NotNull ImporterLevel importedImporterLevel) {
-        Optional<SimpleImporterEntity> chest = find(position, importedImporterLevel.entities().chest());
-        if (chest.isPresent()) {
-            return ENTITY_UP_CHEST_CLOSED;
-        }
-
-        Optional<SimpleImporterEntity> boulder = find(position, importedImporterLevel.entities().boulder());
-        if (boulder.isPresent()) {
-            return ENTITY_UP_BOULDER;
-        }
-
-        Optional<SimpleImporterEntity> enemySeeker = find(position, importedImporterLevel.entities().enemySeeker());
-        if(enemySeeker.isPresent()) {
-            return ENTITY_UP_ENEMY_SEEKER;
-        }
-
-        Optional<ImporterEntityWithDirection> enemyBasic = find(position, importedImporterLevel.entities().enemyBasic());
-        if (enemyBasic.isPresent()) {
-            switch (enemyBasic.get().getDirection()) {
-                case Up -> {
-                    return ENTITY_UP_ENEMY_BASIC_FACING_UP;
-                }
-                case Down -> {
-                    return ENTITY_UP_ENEMY_BASIC_FACING_DOWN;
-                }
-                case Left -> {
-                    return ENTITY_UP_ENEMY_BASIC_FACING_LEFT;
-                }
-                case Right -> {
-                    return ENTITY_UP_ENEMY_BASIC_FACING_RIGHT;
-                }
+    private static int @NotNull [] getNeighbors(@NotNull Position @NotNull [] entitiesPosition, @NotNull EntitiesGrid entitiesGrid) {
+        Direction[] directions = Direction.values();
+        int[] neighbors = new int[entitiesPosition.length * directions.length];
+        for (int entityIndex = 0; entityIndex < entitiesPosition.length; entityIndex++) {
+            for (Direction direction : directions) {
+                neighbors[entityIndex * directions.length + direction.ordinal()] =
+                        entitiesGrid.cellIndex(entitiesPosition[entityIndex].add(direction.delta));
             }
         }
-        return ENTITY_UP_EMPTY;
+        return neighbors;
     }
 
-    private static char getGroundEntity(@NotNull Position position, @NotNull ImporterLevel importedImporterLevel) {
-        Optional<SimpleImporterEntity> ground = find(position, importedImporterLevel.entities().ground());
-        if (ground.isPresent()) {
-            return ENTITY_GROUND_GROUND;
-        }
-
-        Optional<SimpleImporterEntity> hole = find(position, importedImporterLevel.entities().hole());
-        if (hole.isPresent()) {
-            return ENTITY_GROUND_HOLE;
-        }
-
-        Optional<SimpleImporterEntity> glass = find(position, importedImporterLevel.entities().glass());
-        if (glass.isPresent()) {
-            return ENTITY_GROUND_GLASS;
-        }
-
-        Optional<SimpleImporterEntity> downStair = find(position, importedImporterLevel.entities().downStairs());
-        if (downStair.isPresent()) {
-            return ENTITY_GROUND_DOWNSTAIR;
+    /**
+     * A boulder can be pushed along an axis if there is a cell on one side for the player and one on the other side for the boulder,
+     * the cell 0 being never used as the destination of a push.
+     */
+    private static int @NotNull [] getFrozenBoulderCells(int @NotNull [] neighbors) {
+        int directionsNumber = Direction.values().length;
+        List<Integer> frozenBoulderCells = new ArrayList<>();
+        for (int entityIndex = 0; entityIndex < neighbors.length / directionsNumber; entityIndex++) {
+            int offset = entityIndex * directionsNumber;
+            int up = neighbors[offset + Direction.Up.ordinal()];
+            int down = neighbors[offset + Direction.Down.ordinal()];
+            int left = neighbors[offset + Direction.Left.ordinal()];
+            int right = neighbors[offset + Direction.Right.ordinal()];
+            boolean verticalPush = ((up >= 0) && (down > 0)) || ((down >= 0) && (up > 0));
+            boolean horizontalPush = ((left >= 0) && (right > 0)) || ((right >= 0) && (left > 0));
+            if (!(verticalPush || horizontalPush)) {
+                frozenBoulderCells.add(entityIndex);
+            }
         }
-
-        throw new IllegalArgumentException(position.toString());
+        return frozenBoulderCells.stream().mapToInt(Integer::intValue).toArray();
     }
 
-    private static <T extends ImporterEntity> @NotNull Optional<T> find(@NotNull Position position, @Nullable List<T> entities) {
-        if (entities == null) {
-            return Optional.empty();
+    private static int[] getRupees(@NotNull ImporterEntities entities, @NotNull EntitiesGrid entitiesGrid) {
+        List<SimpleImporterEntity> rupeesEntities = entities.rupee();
+        if(rupeesEntities == null) {
+            return new int[0];
         } else {
-            return entities.stream().filter(e -> getColumn(e) == position.column() && getLine(e) == position.line()).findFirst();
+            int[] rupeesIndexes = new int[rupeesEntities.size()];
+            for (int rupeeIndex = 0; rupeeIndex < rupeesIndexes.length; rupeeIndex++) {
+                rupeesIndexes[rupeeIndex] = entitiesGrid.cellIndex(rupeesEntities.get(rupeeIndex));
+            }
+            return rupeesIndexes;
         }
     }
 
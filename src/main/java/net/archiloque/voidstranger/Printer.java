@@ -8,14 +8,20 @@ import java.util.List;
 
 public class Printer implements UpEntity, GroundEntity {
 
-    public static void printPath(@NotNull Level level, @NotNull Move initialMove, @NotNull Move finalMove, @NotNull String suffix) throws IOException {
-        try (PrintStream printStream = new PrintStream(new BufferedOutputStream(new FileOutputStream("solutions/" + level.identifier() + suffix + ".txt")))) {
-            printSolutionDescription(level, finalMove, printStream);
+    /**
+     * System property of the directory where the solutions are printed, default to {@code solutions}.
+     */
+    static final String SOLUTIONS_DIRECTORY_PROPERTY = "voidstranger.solutions";
+
+    public static void printPath(@NotNull Level level, @NotNull Move initialMove, @NotNull List<Action> actions, @NotNull String suffix) throws IOException {
+        File solutionFile = new File(System.getProperty(SOLUTIONS_DIRECTORY_PROPERTY, "solutions"), level.identifier() + suffix + ".txt");
+        try (PrintStream printStream = new PrintStream(new BufferedOutputStream(new FileOutputStream(solutionFile)))) {
+            printSolutionDescription(actions, printStream);
             printStream.println();
             printLevel(level, initialMove, printStream);
             printStream.println();
             Move currentMove = initialMove;
-            for (Action action : finalMove.getActions()) {
+            for (Action action : actions) {
                 currentMove = Player.simulate(level, currentMove, action);
                 printStream.println(action.name());
                 printLevel(level, currentMove, printStream);
@@ -24,8 +30,7 @@ public class Printer implements UpEntity, GroundEntity {
         }
     }
 
-    private static void printSolutionDescription(@NotNull Level level, @NotNull Move move, @NotNull PrintStream printStream) {
-        List<Action> actions = move.getActions();
+    private static void printSolutionDescription(@NotNull List<Action> actions, @NotNull PrintStream printStream) {
         Action currentAction = null;
         int timesCurrentAction = -1;
         List<String> formattedActions = new ArrayList<>();
@@ -74,7 +79,7 @@ public class Printer implements UpEntity, GroundEntity {
             return "@";
         }
 
-        char upEntity = move.upEntities[entityIndex];
+        char upEntity = move.upEntity(entityIndex);
         switch (upEntity) {
             case ENTITY_UP_BOULDER, ENTITY_UP_CHEST_OPEN, ENTITY_UP_CHEST_CLOSED, ENTITY_UP_ENEMY_SEEKER-> {
                 return Character.toString(upEntity);
@@ -92,7 +97,7 @@ public class Printer implements UpEntity, GroundEntity {
                 return "⇓";
             }
         }
-        char groundEntity = move.groundEntities[entityIndex];
+        char groundEntity = move.groundEntity(entityIndex);
         switch (groundEntity) {
             case ENTITY_GROUND_HOLE -> {
                 return "□";
@@ -0,0 +1,123 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Files of fixed-size records of longs, written through a buffer
+ * and read sequentially through memory-mapped windows.
+ */
+final class RecordFile {
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final long WINDOW_SIZE = 1 << 26;
+
+    private RecordFile() {
+    }
+
+    static final class Writer implements Closeable {
+
+        private final @NotNull FileChannel channel;
+        private final @NotNull ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private final int recordSize;
+        private long records = 0;
+
+        Writer(@NotNull Path path, int recordSize) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.recordSize = recordSize;
+        }
+
+        void write(long @NotNull [] source, int offset) throws IOException {
+            for (int index = 0; index < recordSize; index++) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.putLong(source[offset + index]);
+            }
+            records += 1;
+        }
+
+        /**
+         * @return the number of records written
+         */
+        long records() {
+            return records;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    static final class Reader implements Closeable {
+
+        private final @NotNull FileChannel channel;
+        private final int recordSize;
+        private final long fileSize;
+        private final long windowSize;
+        private long windowEnd = 0;
+        private @Nullable LongBuffer window = null;
+
+        Reader(@NotNull Path path, int recordSize) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.recordSize = recordSize;
+            fileSize = channel.size();
+            long recordBytes = ((long) recordSize) * Long.BYTES;
+            windowSize = Math.max(1, WINDOW_SIZE / recordBytes) * recordBytes;
+        }
+
+        /**
+         * @return false if there is no record left
+         */
+        boolean read(long @NotNull [] target) throws IOException {
+            if ((window == null) || (!window.hasRemaining())) {
+                if (windowEnd >= fileSize) {
+                    return false;
+                }
+                long size = Math.min(windowSize, fileSize - windowEnd);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, size).asLongBuffer();
+                windowEnd += size;
+            }
+            window.get(target, 0, recordSize);
+            return true;
+        }
+
+        /**
+         * Read one long of a record without moving the sequential reading.
+         */
+        long readLong(long record, int index) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            long position = (record * recordSize + index) * Long.BYTES;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            return buffer.getLong(0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
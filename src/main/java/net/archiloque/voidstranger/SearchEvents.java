@@ -0,0 +1,80 @@
+package net.archiloque.voidstranger;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR events of the searches, recorded with {@code -XX:StartFlightRecording}.
+ */
+final class SearchEvents {
+
+    private SearchEvents() {
+    }
+
+    @Name("net.archiloque.voidstranger.SearchProgress")
+    @Label("Search Progress")
+    @Description("Periodic state of the search of a level")
+    @Category("Void Stranger")
+    @StackTrace(false)
+    static final class Progress extends Event {
+
+        @Label("Level")
+        String level;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Frontier")
+        @Description("Number of moves of the depth being expanded")
+        long frontier;
+
+        @Label("States")
+        @Description("Number of distinct moves seen")
+        long states;
+
+        @Label("Expanded States")
+        long expanded;
+
+        @Label("Expanded States Per Second")
+        double expandedPerSecond;
+
+        @Label("Duplicate Rate")
+        @Description("Part of the generated moves already seen")
+        double duplicateRate;
+
+        @Label("Heap Used")
+        @DataAmount
+        long heapUsed;
+
+        @Label("Bytes Per State")
+        @DataAmount
+        long bytesPerState;
+    }
+
+    @Name("net.archiloque.voidstranger.SearchDepth")
+    @Label("Search Depth")
+    @Description("A depth of a breadth-first search starting")
+    @Category("Void Stranger")
+    @StackTrace(false)
+    static final class Depth extends Event {
+
+        @Label("Level")
+        String level;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Frontier")
+        @Description("Number of moves of the depth")
+        long frontier;
+
+        @Label("States")
+        @Description("Number of distinct moves seen")
+        long states;
+    }
+}
@@ -0,0 +1,32 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of the search of a level.
+ *
+ * @param reached the objectives whose solution was printed, with the actions of the solution
+ * @param states  the number of distinct moves seen
+ */
+record SearchResult(@NotNull Outcome outcome, @NotNull Map<Player.MoveStatus, List<Action>> reached, long states) {
+
+    enum Outcome {
+        WIN,
+        /**
+         * All the objectives searched were reached, the win not being one of them.
+         */
+        COMPLETE,
+        /**
+         * None of the objectives searched can be reached from the start, so nothing was searched.
+         */
+        UNAVAILABLE,
+        FAIL,
+        /**
+         * The search stopped because it reached the maximum number of states.
+         */
+        ABORTED,
+    }
+}
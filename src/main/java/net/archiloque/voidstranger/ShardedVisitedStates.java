@@ -0,0 +1,62 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe set of visited moves, split into {@link VisitedStates} shards
+ * selected by the low bits of the hash, each shard having its own lock.
+ */
+final class ShardedVisitedStates {
+
+    private final @NotNull VisitedStates @NotNull [] shards;
+    private final @NotNull AtomicInteger size = new AtomicInteger();
+
+    ShardedVisitedStates(@NotNull Level level, int threads) {
+        int shardsNumber = Integer.highestOneBit(Math.max(1, threads) * 4 - 1) << 1;
+        shards = new VisitedStates[shardsNumber];
+        for (int shardIndex = 0; shardIndex < shardsNumber; shardIndex++) {
+            shards[shardIndex] = new VisitedStates(level);
+        }
+    }
+
+    /**
+     * @return true if the move was not already present
+     */
+    boolean add(@NotNull Move move) {
+        VisitedStates shard = shards[((int) move.hash) & (shards.length - 1)];
+        boolean added;
+        synchronized (shard) {
+            added = shard.add(move);
+        }
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    long memoryUsage() {
+        long memoryUsage = 0;
+        for (VisitedStates shard : shards) {
+            synchronized (shard) {
+                memoryUsage += shard.memoryUsage();
+            }
+        }
+        return memoryUsage;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d states in %d shards, %d MB",
+                size(),
+                shards.length,
+                memoryUsage() / (1024 * 1024));
+    }
+}
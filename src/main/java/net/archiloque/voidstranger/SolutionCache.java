@@ -0,0 +1,167 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solutions of the won, completed or failed levels stored in the {@code cache} directory, in a file named after the SHA-256
+ * of the level file (and of the LDtk project file for an LDtk level), of {@link #SOLVER_VERSION}, of the search algorithm,
+ * of the macro moves and of the objectives.
+ * When the file exists the search is skipped: each solution is replayed with {@link Player#simulate},
+ * and printed again if it still reaches its objective.
+ * <p>
+ * The first lines of a file are the outcome and the number of states of the search,
+ * each following line is an objective followed by the actions of its solution.
+ */
+final class SolutionCache {
+
+    /**
+     * To increase when a change of the rules or of the searches changes the solutions found.
+     */
+    private static final int SOLVER_VERSION = 3;
+
+    private static final Path CACHE_DIRECTORY = Path.of("cache");
+    private static final String OUTCOME = "OUTCOME";
+    private static final String STATES = "STATES";
+    private static final String ACTIONS_SEPARATOR = ", ";
+
+    private SolutionCache() {
+    }
+
+    /**
+     * Solve a level unless its solutions are in the cache.
+     */
+    static @NotNull SearchResult solve(
+            @NotNull File levelFile,
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull Options options,
+            @NotNull PrintStream out,
+            long maxStates) {
+        Path cacheFile = CACHE_DIRECTORY.resolve(key(levelFile, options));
+        if (Files.exists(cacheFile)) {
+            SearchResult searchResult = replay(cacheFile, preparationResult);
+            if (searchResult != null) {
+                out.println("Solutions replayed from " + cacheFile);
+                if (searchResult.outcome() == SearchResult.Outcome.FAIL) {
+                    out.println(" ### Fail !");
+                }
+                return searchResult;
+            }
+            out.println("Invalid solutions in " + cacheFile);
+        }
+        SearchResult searchResult = App.solve(preparationResult, options, out, maxStates);
+        if ((searchResult.outcome() == SearchResult.Outcome.WIN)
+                || (searchResult.outcome() == SearchResult.Outcome.COMPLETE)
+                || (searchResult.outcome() == SearchResult.Outcome.FAIL)) {
+            write(cacheFile, searchResult);
+        }
+        return searchResult;
+    }
+
+    private static @NotNull String key(@NotNull File levelFile, @NotNull Options options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Files.readAllBytes(levelFile.toPath()));
+            if (options.ldtk) {
+                digest.update(Files.readAllBytes(App.LDTK_PROJECT.toPath()));
+            }
+            digest.update((SOLVER_VERSION + " " + options.search.name() + " " + options.macro + " " + options.objectives).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return null if a solution does not reach its objective anymore
+     */
+    private static @Nullable SearchResult replay(@NotNull Path cacheFile, @NotNull Preparer.PreparationResult preparationResult) {
+        SearchResult.Outcome outcome = null;
+        long states = 0;
+        Map<Player.MoveStatus, List<Action>> reached = new EnumMap<>(Player.MoveStatus.class);
+        try {
+            for (String line : Files.readAllLines(cacheFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(" ", 2);
+                if (fields[0].equals(OUTCOME)) {
+                    outcome = SearchResult.Outcome.valueOf(fields[1]);
+                } else if (fields[0].equals(STATES)) {
+                    states = Long.parseLong(fields[1]);
+                } else {
+                    Player.MoveStatus moveStatus = Player.MoveStatus.valueOf(fields[0]);
+                    List<Action> actions = new ArrayList<>();
+                    if (fields.length > 1) {
+                        for (String action : fields[1].split(ACTIONS_SEPARATOR)) {
+                            actions.add(Action.valueOf(action));
+                        }
+                    }
+                    if (!reaches(preparationResult, actions, moveStatus)) {
+                        return null;
+                    }
+                    reached.put(moveStatus, actions);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if ((outcome == null) || ((outcome != SearchResult.Outcome.FAIL) && reached.isEmpty())) {
+            return null;
+        }
+        for (Map.Entry<Player.MoveStatus, List<Action>> solution : reached.entrySet()) {
+            Objectives.printPath(preparationResult, solution.getKey(), solution.getValue());
+        }
+        return new SearchResult(outcome, reached, states);
+    }
+
+    /**
+     * @return true if the actions only end the level with the last one, reaching the objective
+     */
+    private static boolean reaches(
+            @NotNull Preparer.PreparationResult preparationResult,
+            @NotNull List<Action> actions,
+            @NotNull Player.MoveStatus objective) {
+        Level level = preparationResult.level();
+        Move move = preparationResult.move();
+        for (int actionIndex = 0; actionIndex < actions.size(); actionIndex++) {
+            move = Player.simulate(level, move, actions.get(actionIndex));
+            Player.MoveStatus moveStatus = Player.moveStatus(move, level);
+            if ((moveStatus != Player.MoveStatus.LOOSE) && (actionIndex < actions.size() - 1)) {
+                return false;
+            }
+        }
+        return Player.moveStatus(move, level) == objective;
+    }
+
+    private static void write(@NotNull Path cacheFile, @NotNull SearchResult searchResult) {
+        List<String> lines = new ArrayList<>();
+        lines.add(OUTCOME + " " + searchResult.outcome().name());
+        lines.add(STATES + " " + searchResult.states());
+        for (Map.Entry<Player.MoveStatus, List<Action>> solution : searchResult.reached().entrySet()) {
+            List<String> actions = solution.getValue().stream().map(Action::name).toList();
+            lines.add(solution.getKey().name() + " " + String.join(ACTIONS_SEPARATOR, actions));
+        }
+        try {
+            Files.createDirectories(CACHE_DIRECTORY);
+            Files.write(cacheFile, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Fixed-size table of the moves reached during an iteration of {@link IdaStarPlayer}
+ * with their lowest number of actions.
+ * Each hash has a single slot, and a new move replaces the one already there,
+ * so forgetting a move only costs exploring it again.
+ * The hash of the layers is kept as a second key, so that a collision of the move hashes
+ * does not prune a move that has not been reached.
+ */
+final class TranspositionTable {
+
+    private final long @NotNull [] hashes;
+    private final long @NotNull [] layersHashes;
+    private final int @NotNull [] actions;
+
+    /**
+     * Iteration of each slot, 0 for an empty slot.
+     */
+    private final int @NotNull [] iterations;
+
+    TranspositionTable(int bits) {
+        int capacity = 1 << bits;
+        hashes = new long[capacity];
+        layersHashes = new long[capacity];
+        actions = new int[capacity];
+        iterations = new int[capacity];
+    }
+
+    /**
+     * Record a move reached during an iteration.
+     *
+     * @param iteration the iteration, starting at 1
+     * @return false if the move has already been reached during this iteration with at most this number of actions
+     */
+    boolean visit(long hash, long layersHash, int actions, int iteration) {
+        int slot = ((int) hash) & (hashes.length - 1);
+        if ((iterations[slot] == iteration)
+                && (hashes[slot] == hash)
+                && (layersHashes[slot] == layersHash)
+                && (this.actions[slot] <= actions)) {
+            return false;
+        }
+        hashes[slot] = hash;
+        layersHashes[slot] = layersHash;
+        this.actions[slot] = actions;
+        iterations[slot] = iteration;
+        return true;
+    }
+
+    long memoryUsage() {
+        return ((long) hashes.length) * (Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES);
+    }
+}
@@ -0,0 +1,146 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Set of the moves already seen during a search.
+ * Moves are packed into fixed-size records stored in pages of longs,
+ * the table uses open addressing with linear probing and
+ * stores the high bits of the hash next to the record number,
+ * so no object is kept per move.
+ */
+final class VisitedStates {
+
+    private static final int PAGE_SIZE = 1 << 18;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    private final @NotNull MoveCodec moveCodec;
+    private final int groundLayerSize;
+    private final int upLayerSize;
+    private final int recordSize;
+    private final int recordsPerPage;
+
+    private long @NotNull [] @NotNull [] pages = new long[1][];
+    private long @NotNull [] table = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    VisitedStates(@NotNull Level level) {
+        moveCodec = new MoveCodec(level);
+        groundLayerSize = moveCodec.groundLayerSize;
+        upLayerSize = moveCodec.upLayerSize;
+        recordSize = moveCodec.size;
+        recordsPerPage = PAGE_SIZE / recordSize;
+    }
+
+    /**
+     * @return true if the move was not already present
+     */
+    boolean add(@NotNull Move move) {
+        if (size >= table.length * MAX_LOAD_FACTOR) {
+            resize();
+        }
+        int slot = slot(move);
+        if (table[slot] != 0) {
+            return false;
+        }
+        int record = append(move);
+        table[slot] = (move.hash >>> 32 << 32) | (record + 1L);
+        return true;
+    }
+
+    boolean contains(@NotNull Move move) {
+        return table[slot(move)] != 0;
+    }
+
+    /**
+     * @return the slot containing the move, or the empty slot where it should be added
+     */
+    private int slot(@NotNull Move move) {
+        int fingerprint = (int) (move.hash >>> 32);
+        int mask = table.length - 1;
+        int slot = fingerprint & mask;
+        while (true) {
+            long entry = table[slot];
+            if ((entry == 0) || (((int) (entry >>> 32) == fingerprint) && matches(((int) entry) - 1, move))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    double loadFactor() {
+        return ((double) size) / table.length;
+    }
+
+    /**
+     * @return the number of bytes used by the table and the records
+     */
+    long memoryUsage() {
+        long pagesNumber = Arrays.stream(pages).filter(Objects::nonNull).count();
+        return (((long) table.length) + (pagesNumber * PAGE_SIZE)) * Long.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d states, load factor %.2f, %d MB",
+                size,
+                loadFactor(),
+                memoryUsage() / (1024 * 1024));
+    }
+
+    private int append(@NotNull Move move) {
+        int record = size;
+        int pageIndex = record / recordsPerPage;
+        if (pageIndex == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+        long[] page = pages[pageIndex];
+        if (page == null) {
+            page = new long[PAGE_SIZE];
+            pages[pageIndex] = page;
+        }
+        int offset = (record % recordsPerPage) * recordSize;
+        moveCodec.write(move, page, offset);
+        size += 1;
+        return record;
+    }
+
+    private boolean matches(int record, @NotNull Move move) {
+        long[] page = pages[record / recordsPerPage];
+        int offset = (record % recordsPerPage) * recordSize;
+        if ((page[offset] != MoveCodec.header(move)) || (page[offset + 1] != move.rupeesFound)) {
+            return false;
+        }
+        return Arrays.equals(
+                page, offset + 2, offset + 2 + groundLayerSize,
+                move.groundLayer, 0, groundLayerSize) &&
+                Arrays.equals(
+                        page, offset + 2 + groundLayerSize, offset + recordSize,
+                        move.upLayer, 0, upLayerSize);
+    }
+
+    private void resize() {
+        long[] newTable = new long[table.length * 2];
+        int mask = newTable.length - 1;
+        for (long entry : table) {
+            if (entry != 0) {
+                int slot = ((int) (entry >>> 32)) & mask;
+                while (newTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[slot] = entry;
+            }
+        }
+        table = newTable;
+    }
+}
@@ -0,0 +1,83 @@
+package net.archiloque.voidstranger;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys of a level: one random value per (cell, entity) and per player attribute,
+ * so a move hash can be updated with a xor each time a cell changes.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x5EED_F00D_CAFEL;
+
+    private final long @NotNull [] groundKeys;
+    private final long @NotNull [] upKeys;
+    private final long @NotNull [] playerPositionKeys;
+    private final long @NotNull [] playerDirectionKeys;
+    private final long @NotNull [] playerStateKeys;
+    private final long @NotNull [] rupeeKeys;
+
+    private Zobrist(int size, int rupeesNumber) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        groundKeys = random.longs((long) size * Layers.GROUND_CODES).toArray();
+        upKeys = random.longs((long) size * Layers.UP_CODES).toArray();
+        playerPositionKeys = random.longs(size).toArray();
+        playerDirectionKeys = random.longs(Direction.values().length).toArray();
+        playerStateKeys = random.longs(Move.PlayerState.values().length).toArray();
+        rupeeKeys = random.longs(rupeesNumber).toArray();
+    }
+
+    public static @NotNull Zobrist create(int size, int rupeesNumber) {
+        return new Zobrist(size, rupeesNumber);
+    }
+
+    long groundKey(int index, int groundCode) {
+        return groundKeys[index * Layers.GROUND_CODES + groundCode];
+    }
+
+    long upKey(int index, int upCode) {
+        return upKeys[index * Layers.UP_CODES + upCode];
+    }
+
+    /**
+     * Hash of the layers computed from scratch, used for the initial move.
+     */
+    long layersHash(long @NotNull [] groundLayer, long @NotNull [] upLayer, int size) {
+        long hash = 0;
+        for (int index = 0; index < size; index++) {
+            hash ^= groundKey(index, Layers.groundCode(groundLayer, index));
+            hash ^= upKey(index, Layers.upCode(upLayer, index));
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of a move from the hash of its layers.
+     */
+    long moveHash(long layersHash,
+                  int playerPositionIndex,
+                  @NotNull Direction playerDirection,
+                  @NotNull Move.PlayerState playerState,
+                  long rupeesFound) {
+        return layersHash ^
+                playerPositionKeys[playerPositionIndex] ^
+                playerDirectionKeys[playerDirection.ordinal()] ^
+                playerStateKeys[playerState.ordinal()] ^
+                rupeesHash(rupeesFound);
+    }
+
+    /**
+     * Part of the hash of a move coming from the rupees found.
+     */
+    long rupeesHash(long rupeesFound) {
+        long hash = 0;
+        long remainingRupees = rupeesFound;
+        while (remainingRupees != 0) {
+            hash ^= rupeeKeys[Long.numberOfTrailingZeros(remainingRupees)];
+            remainingRupees &= remainingRupees - 1;
+        }
+        return hash;
+    }
+}
@@ -3,10 +3,7 @@ package net.archiloque.voidstranger.importer;
 import com.google.gson.annotations.SerializedName;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Stream;
 
 public record ImporterEntities(
         @SerializedName("Boulder")
@@ -53,30 +50,4 @@ public record ImporterEntities(
         @Nullable
         List<SimpleImporterEntity> wall
 ) {
-
-    public Stream<ImporterEntity> getAllEntities() {
-        return Stream.of(
-                boulder,
-                chest,
-                downStairs,
-                enemyBasic,
-                enemySeeker,
-                glass,
-                ground,
-                hole,
-                playerStartPosition,
-                rupee,
-                wall
-        ).filter(Objects::nonNull).flatMap(Collection::stream);
-    }
-
-    public Stream<ImporterEntity> getGroundEntities() {
-        return Stream.of(
-                downStairs,
-                glass,
-                ground,
-                hole
-        ).filter(Objects::nonNull).flatMap(Collection::stream);
-    }
-
 }
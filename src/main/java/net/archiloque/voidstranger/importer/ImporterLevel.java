@@ -8,12 +8,4 @@ public record ImporterLevel(
 
         @SerializedName("entities")
         ImporterEntities entities) {
-
-    public java.util.stream.Stream<ImporterEntity> getAllEntities() {
-        return entities().getAllEntities();
-    }
-
-    public java.util.stream.Stream<ImporterEntity> getGroundEntities() {
-        return entities().getGroundEntities();
-    }
 }
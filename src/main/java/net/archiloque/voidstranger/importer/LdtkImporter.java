@@ -0,0 +1,233 @@
+package net.archiloque.voidstranger.importer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.archiloque.voidstranger.Direction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Read the levels directly from the LDtk project file and its level files, without the simplified export.
+ * The files are streamed and everything but the entities is skipped,
+ * so the memory used doesn't depend on the size of the files.
+ * The levels have to be saved in separate files.
+ */
+public final class LdtkImporter {
+
+    public static final String LEVEL_EXTENSION = ".ldtkl";
+
+    private static final String PLAYER_START_POSITION = "Player_start_position";
+    private static final String ENEMY_BASIC = "Enemy_basic";
+    private static final String DIRECTION = "Direction";
+
+    /**
+     * An entity as read from a level file.
+     */
+    private record LdtkEntity(@NotNull String identifier, int x, int y, @Nullable Direction direction) {
+    }
+
+    private LdtkImporter() {
+    }
+
+    /**
+     * @return the level files of a project indexed by level identifier
+     */
+    public static @NotNull SortedMap<String, File> levelFiles(@NotNull File projectFile) throws IOException {
+        SortedMap<String, File> levelFiles = new TreeMap<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(projectFile.toPath(), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("levels")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readLevelFile(reader, projectFile, levelFiles);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return levelFiles;
+    }
+
+    public static @NotNull ImporterLevel readLevel(@NotNull File levelFile) throws IOException {
+        String identifier = null;
+        List<LdtkEntity> entities = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(levelFile.toPath(), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "identifier" -> identifier = reader.nextString();
+                    case "layerInstances" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readLayer(reader, entities);
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        if (identifier == null) {
+            throw new IllegalArgumentException("No identifier in " + levelFile);
+        }
+        return new ImporterLevel(identifier, new ImporterEntities(
+                simpleEntities(entities, "Boulder"),
+                simpleEntities(entities, "Chest"),
+                simpleEntities(entities, "Down_stairs"),
+                entitiesWithDirection(entities, ENEMY_BASIC),
+                simpleEntities(entities, "Enemy_seeker"),
+                simpleEntities(entities, "Glass"),
+                simpleEntities(entities, "Ground"),
+                simpleEntities(entities, "Hole"),
+                entitiesWithDirection(entities, PLAYER_START_POSITION),
+                simpleEntities(entities, "Rupee"),
+                simpleEntities(entities, "Wall")));
+    }
+
+    private static void readLevelFile(@NotNull JsonReader reader, @NotNull File projectFile, @NotNull SortedMap<String, File> levelFiles) throws IOException {
+        String identifier = null;
+        String externalRelPath = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "identifier" -> identifier = reader.nextString();
+                case "externalRelPath" -> externalRelPath = nextNullableString(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (externalRelPath == null) {
+            throw new IllegalArgumentException("Level " + identifier + " is not saved in a separate file");
+        }
+        levelFiles.put(identifier, new File(projectFile.getParentFile(), externalRelPath));
+    }
+
+    private static void readLayer(@NotNull JsonReader reader, @NotNull List<LdtkEntity> entities) throws IOException {
+        int offsetX = 0;
+        int offsetY = 0;
+        List<LdtkEntity> layerEntities = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "__pxTotalOffsetX" -> offsetX = reader.nextInt();
+                case "__pxTotalOffsetY" -> offsetY = reader.nextInt();
+                case "entityInstances" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        layerEntities.add(readEntity(reader));
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        for (LdtkEntity entity : layerEntities) {
+            entities.add(new LdtkEntity(entity.identifier(), entity.x() + offsetX, entity.y() + offsetY, entity.direction()));
+        }
+    }
+
+    private static @NotNull LdtkEntity readEntity(@NotNull JsonReader reader) throws IOException {
+        String identifier = null;
+        int x = 0;
+        int y = 0;
+        Direction direction = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "__identifier" -> identifier = reader.nextString();
+                case "px" -> {
+                    reader.beginArray();
+                    x = reader.nextInt();
+                    y = reader.nextInt();
+                    reader.endArray();
+                }
+                case "fieldInstances" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Direction fieldDirection = readDirection(reader);
+                        if (fieldDirection != null) {
+                            direction = fieldDirection;
+                        }
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (identifier == null) {
+            throw new IllegalArgumentException("Entity without identifier at " + reader.getPath());
+        }
+        return new LdtkEntity(identifier, x, y, direction);
+    }
+
+    /**
+     * @return the direction if the field is the direction of the entity
+     */
+    private static @Nullable Direction readDirection(@NotNull JsonReader reader) throws IOException {
+        String identifier = null;
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "__identifier" -> identifier = reader.nextString();
+                case "__value" -> {
+                    if (reader.peek() == JsonToken.STRING) {
+                        value = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return (DIRECTION.equals(identifier) && (value != null)) ? Direction.valueOf(value) : null;
+    }
+
+    private static @Nullable String nextNullableString(@NotNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static @Nullable List<SimpleImporterEntity> simpleEntities(@NotNull List<LdtkEntity> entities, @NotNull String identifier) {
+        List<SimpleImporterEntity> result = new ArrayList<>();
+        for (LdtkEntity entity : entities) {
+            if (entity.identifier().equals(identifier)) {
+                result.add(new SimpleImporterEntity(entity.x(), entity.y()));
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    private static @Nullable List<ImporterEntityWithDirection> entitiesWithDirection(@NotNull List<LdtkEntity> entities, @NotNull String identifier) {
+        List<ImporterEntityWithDirection> result = new ArrayList<>();
+        for (LdtkEntity entity : entities) {
+            if (entity.identifier().equals(identifier)) {
+                if (entity.direction() == null) {
+                    throw new IllegalArgumentException(identifier + " without direction at " + entity.x() + "," + entity.y());
+                }
+                result.add(new ImporterEntityWithDirection(entity.x(), entity.y(), new CustomFields(entity.direction())));
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+}
@@ -0,0 +1,26 @@
+package net.archiloque.voidstranger;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * The in-place board used by the iterative deepening search follows the same rules as {@link Player}
+ * on levels with and without enemies.
+ */
+class EngineCheckTest {
+
+    private static final long MAX_STATES = 20_000;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"B002", "B014", "B029", "B033", "WHAT"})
+    void inPlaceBoardMatchesPlayer(String levelIdentifier) throws IOException {
+        Preparer.PreparationResult preparationResult = Preparer.prepareLevel(
+                new File("levels/VoidStranger/simplified/" + levelIdentifier + "/data.json"));
+        EngineCheck.run(preparationResult, new PrintStream(OutputStream.nullOutputStream()), MAX_STATES);
+    }
+}